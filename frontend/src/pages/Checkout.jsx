@@ -1,9 +1,10 @@
-import { useState } from 'react';
+import { useRef, useState } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import { motion } from 'framer-motion';
 import { MapPin, CreditCard, Smartphone, ChevronLeft, Lock, Check, Loader2, AlertCircle } from 'lucide-react';
 import { useCart } from '../context/CartContext';
 import { useAuth } from '../context/AuthContext';
+import { orderService } from '../services/api';
 
 const paymentMethods = [
     { id: 'card', name: 'Tarjeta de Crédito/Débito', icon: CreditCard },
@@ -14,11 +15,13 @@ const paymentMethods = [
 export default function Checkout() {
     const navigate = useNavigate();
     const { items, subtotal, shipping, total, clearCart } = useCart();
-    const { user, token } = useAuth();
+    const { user } = useAuth();
 
     const [step, setStep] = useState(1);
     const [isLoading, setIsLoading] = useState(false);
     const [error, setError] = useState(null);
+    // Misma clave en los reintentos: si la respuesta se perdió, el servidor devuelve el mismo pedido
+    const idempotencyKey = useRef(crypto.randomUUID());
 
     const [shippingData, setShippingData] = useState({
         name: user?.firstname || '',
@@ -73,28 +76,25 @@ export default function Checkout() {
                 quantity: item.quantity
             }));
 
-            const response = await fetch('/api/v1/orders', {
-                method: 'POST',
-                headers: {
-                    'Content-Type': 'application/json',
-                    'Authorization': `Bearer ${token}`
-                },
-                body: JSON.stringify({
+            let order;
+            try {
+                order = await orderService.create({
                     items: orderItems,
                     shippingAddress: `${shippingData.address}, ${shippingData.city}`,
                     shippingPhone: shippingData.phone,
                     notes: shippingData.notes,
                     paymentMethod: paymentMethod
-                })
-            });
-
-            if (!response.ok) {
-                const errorData = await response.text();
-                throw new Error(errorData || 'Error al procesar el pedido');
+                }, idempotencyKey.current);
+            } catch (requestError) {
+                if (requestError.response) {
+                    // El servidor respondió: el próximo intento (quizá con otro carrito) es un pedido nuevo
+                    idempotencyKey.current = crypto.randomUUID();
+                }
+                const data = requestError.response?.data;
+                const message = typeof data === 'string' ? data : data?.error;
+                throw new Error(message || 'Error al procesar el pedido');
             }
 
-            const order = await response.json();
-
             // Limpiar carrito
             clearCart();
 
@@ -3,28 +3,27 @@ import { motion } from 'framer-motion';
 import { Package, Truck, CheckCircle, Clock, ChevronLeft, Loader2, ExternalLink, MapPin, CreditCard } from 'lucide-react';
 import { useAuth } from '../context/AuthContext';
 import { Link } from 'react-router-dom';
+import { orderService } from '../services/api';
+
+const PAGE_SIZE = 20;
 
 export default function OrderHistory() {
     const { token } = useAuth();
     const [orders, setOrders] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [isLoading, setIsLoading] = useState(true);
+    const [isLoadingMore, setIsLoadingMore] = useState(false);
     const [selectedOrder, setSelectedOrder] = useState(null);
+    const [details, setDetails] = useState({}); // Detalle por id, se pide al expandir
 
     useEffect(() => {
         const fetchOrders = async () => {
             if (!token) return;
 
             try {
-                const response = await fetch('/api/v1/orders', {
-                    headers: {
-                        'Authorization': `Bearer ${token}`
-                    }
-                });
-
-                if (response.ok) {
-                    const data = await response.json();
-                    setOrders(data);
-                }
+                const data = await orderService.getMyOrders(null, PAGE_SIZE);
+                setOrders(data.items);
+                setNextCursor(data.nextCursor);
             } catch (error) {
                 console.error('Error cargando pedidos:', error);
             } finally {
@@ -35,6 +34,36 @@ export default function OrderHistory() {
         fetchOrders();
     }, [token]);
 
+    const loadMore = async () => {
+        setIsLoadingMore(true);
+        try {
+            const data = await orderService.getMyOrders(nextCursor, PAGE_SIZE);
+            setOrders(prev => [...prev, ...data.items]);
+            setNextCursor(data.nextCursor);
+        } catch (error) {
+            console.error('Error cargando pedidos:', error);
+        } finally {
+            setIsLoadingMore(false);
+        }
+    };
+
+    const toggleOrder = async (orderId) => {
+        if (selectedOrder === orderId) {
+            setSelectedOrder(null);
+            return;
+        }
+        setSelectedOrder(orderId);
+        if (details[orderId]) return;
+
+        try {
+            const detail = await orderService.getById(orderId);
+            setDetails(prev => ({ ...prev, [orderId]: detail }));
+        } catch (error) {
+            console.error('Error cargando el pedido:', error);
+            setSelectedOrder(null);
+        }
+    };
+
     const getStatusInfo = (status) => {
         switch (status?.toUpperCase()) {
             case 'PAID':
@@ -94,18 +123,19 @@ export default function OrderHistory() {
                         {orders.map((order, index) => {
                             const statusInfo = getStatusInfo(order.status);
                             const isExpanded = selectedOrder === order.id;
+                            const detail = details[order.id];
 
                             return (
                                 <motion.div
                                     key={order.id}
                                     initial={{ opacity: 0, y: 20 }}
                                     animate={{ opacity: 1, y: 0 }}
-                                    transition={{ delay: index * 0.1 }}
+                                    transition={{ delay: (index % PAGE_SIZE) * 0.05 }}
                                     className="bg-white rounded-2xl shadow-md overflow-hidden"
                                 >
                                     {/* Order Header */}
                                     <button
-                                        onClick={() => setSelectedOrder(isExpanded ? null : order.id)}
+                                        onClick={() => toggleOrder(order.id)}
                                         className="w-full p-6 flex items-center justify-between hover:bg-crema-50 transition-colors"
                                     >
                                         <div className="flex items-center gap-4">
@@ -138,7 +168,12 @@ export default function OrderHistory() {
                                     </button>
 
                                     {/* Expanded Details */}
-                                    {isExpanded && (
+                                    {isExpanded && !detail && (
+                                        <div className="border-t border-crema-200 p-6 bg-crema-50 flex justify-center">
+                                            <Loader2 className="animate-spin text-rosa-500" size={24} />
+                                        </div>
+                                    )}
+                                    {isExpanded && detail && (
                                         <motion.div
                                             initial={{ height: 0, opacity: 0 }}
                                             animate={{ height: 'auto', opacity: 1 }}
@@ -152,44 +187,44 @@ export default function OrderHistory() {
                                             </div>
 
                                             {/* Shipping Info */}
-                                            {order.shippingAddress && (
+                                            {detail.shippingAddress && (
                                                 <div className="mb-4 flex items-start gap-3">
                                                     <MapPin size={18} className="text-chocolate-400 mt-0.5" />
                                                     <div>
                                                         <p className="font-medium text-chocolate-600">Dirección de envío</p>
-                                                        <p className="text-chocolate-400 text-sm">{order.shippingAddress}</p>
+                                                        <p className="text-chocolate-400 text-sm">{detail.shippingAddress}</p>
                                                     </div>
                                                 </div>
                                             )}
 
                                             {/* Payment Method */}
-                                            {order.paymentMethod && (
+                                            {detail.paymentMethod && (
                                                 <div className="mb-4 flex items-start gap-3">
                                                     <CreditCard size={18} className="text-chocolate-400 mt-0.5" />
                                                     <div>
                                                         <p className="font-medium text-chocolate-600">Método de pago</p>
-                                                        <p className="text-chocolate-400 text-sm capitalize">{order.paymentMethod}</p>
+                                                        <p className="text-chocolate-400 text-sm capitalize">{detail.paymentMethod}</p>
                                                     </div>
                                                 </div>
                                             )}
 
                                             {/* Tracking */}
-                                            {order.trackingNumber && (
+                                            {detail.trackingNumber && (
                                                 <div className="mb-6 p-4 bg-blue-50 rounded-xl border border-blue-200">
                                                     <div className="flex items-center justify-between">
                                                         <div>
                                                             <p className="font-medium text-blue-700">
-                                                                {order.shippingCompany || 'Envío'} - Guía: {order.trackingNumber}
+                                                                {detail.shippingCompany || 'Envío'} - Guía: {detail.trackingNumber}
                                                             </p>
-                                                            {order.shippedAt && (
+                                                            {detail.shippedAt && (
                                                                 <p className="text-sm text-blue-600">
-                                                                    Despachado: {new Date(order.shippedAt).toLocaleDateString('es-CO')}
+                                                                    Despachado: {new Date(detail.shippedAt).toLocaleDateString('es-CO')}
                                                                 </p>
                                                             )}
                                                         </div>
-                                                        {order.trackingUrl && (
+                                                        {detail.trackingUrl && (
                                                             <a
-                                                                href={order.trackingUrl}
+                                                                href={detail.trackingUrl}
                                                                 target="_blank"
                                                                 rel="noopener noreferrer"
                                                                 className="flex items-center gap-2 bg-blue-500 text-white px-4 py-2 rounded-full text-sm font-medium hover:bg-blue-600 transition-colors"
@@ -207,19 +242,19 @@ export default function OrderHistory() {
                                             <div>
                                                 <p className="font-medium text-chocolate-600 mb-3">Productos</p>
                                                 <div className="space-y-2">
-                                                    {order.items?.map((item, i) => (
+                                                    {detail.items.map((item, i) => (
                                                         <div key={i} className="flex justify-between items-center p-3 bg-white rounded-lg">
                                                             <div className="flex items-center gap-3">
-                                                                {item.product?.imageUrl && (
+                                                                {item.imageUrl && (
                                                                     <img
-                                                                        src={item.product.imageUrl}
-                                                                        alt={item.product?.name}
+                                                                        src={item.imageUrl}
+                                                                        alt={item.productName}
                                                                         className="w-12 h-12 rounded-lg object-cover"
                                                                     />
                                                                 )}
                                                                 <div>
                                                                     <p className="font-medium text-chocolate-600">
-                                                                        {item.product?.name || 'Producto'}
+                                                                        {item.productName || 'Producto'}
                                                                     </p>
                                                                     <p className="text-sm text-chocolate-400">
                                                                         Cantidad: {item.quantity}
@@ -235,10 +270,10 @@ export default function OrderHistory() {
                                             </div>
 
                                             {/* Notes */}
-                                            {order.notes && (
+                                            {detail.notes && (
                                                 <div className="mt-4 p-3 bg-amber-50 rounded-lg border border-amber-200">
                                                     <p className="text-sm text-amber-700">
-                                                        <strong>Notas:</strong> {order.notes}
+                                                        <strong>Notas:</strong> {detail.notes}
                                                     </p>
                                                 </div>
                                             )}
@@ -247,6 +282,19 @@ export default function OrderHistory() {
                                 </motion.div>
                             );
                         })}
+
+                        {nextCursor && (
+                            <div className="flex justify-center pt-4">
+                                <button
+                                    onClick={loadMore}
+                                    disabled={isLoadingMore}
+                                    className="btn-primary inline-flex items-center gap-2 disabled:opacity-60"
+                                >
+                                    {isLoadingMore && <Loader2 className="animate-spin" size={18} />}
+                                    Ver más pedidos
+                                </button>
+                            </div>
+                        )}
                     </div>
                 )}
             </div>
@@ -3,12 +3,14 @@ import { motion } from 'framer-motion';
 import { User, Mail, Phone, MapPin, Package, Heart, LogOut, Edit2, Save, Shield, ChevronRight, Truck, CheckCircle, Clock, Loader2 } from 'lucide-react';
 import { useAuth } from '../context/AuthContext';
 import { useNavigate, Link } from 'react-router-dom';
+import { orderService } from '../services/api';
 
 export default function Profile() {
     const { user, token, logout } = useAuth();
     const navigate = useNavigate();
     const [isEditing, setIsEditing] = useState(false);
-    const [orders, setOrders] = useState([]);
+    const [orders, setOrders] = useState([]); // Los 3 más recientes
+    const [totalOrders, setTotalOrders] = useState(0);
     const [isLoadingOrders, setIsLoadingOrders] = useState(true);
 
     const [profileData, setProfileData] = useState({
@@ -27,16 +29,9 @@ export default function Profile() {
             if (!token) return;
 
             try {
-                const response = await fetch('/api/v1/orders', {
-                    headers: {
-                        'Authorization': `Bearer ${token}`
-                    }
-                });
-
-                if (response.ok) {
-                    const data = await response.json();
-                    setOrders(data);
-                }
+                const data = await orderService.getMyOrders(null, 3);
+                setOrders(data.items);
+                setTotalOrders(data.total ?? data.items.length);
             } catch (error) {
                 console.error('Error cargando pedidos:', error);
             } finally {
@@ -59,7 +54,7 @@ export default function Profile() {
 
     // Estadísticas reales basadas en pedidos
     const stats = [
-        { label: 'Pedidos', value: orders.length, icon: Package },
+        { label: 'Pedidos', value: totalOrders, icon: Package },
         { label: 'Favoritos', value: 0, icon: Heart },
     ];
 
@@ -165,7 +160,7 @@ export default function Profile() {
                             <h2 className="font-display text-xl font-bold text-chocolate-600">
                                 Mis Pedidos
                             </h2>
-                            {orders.length > 3 && (
+                            {totalOrders > 3 && (
                                 <Link to="/historial" className="text-rosa-500 hover:text-rosa-400 text-sm font-medium">
                                     Ver todos →
                                 </Link>
@@ -25,13 +25,47 @@ api.interceptors.request.use(
     }
 );
 
+// Un solo refresh a la vez aunque fallen varias peticiones juntas
+let refreshing = null;
+
+const refreshAccessToken = async () => {
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (!refreshToken) throw new Error('Sin refresh token');
+    const response = await axios.post(`${API_BASE_URL}/auth/refresh`, { refreshToken });
+    localStorage.setItem('token', response.data.token);
+    localStorage.setItem('refreshToken', response.data.refreshToken);
+    return response.data.token;
+};
+
 // Interceptor para manejar errores globales (ej: token expirado)
 api.interceptors.response.use(
     (response) => response,
-    (error) => {
-        if (error.response?.status === 401) {
+    async (error) => {
+        const original = error.config;
+        const status = error.response?.status;
+        // El access token dura poco: al expirar se pide uno nuevo y se reintenta una vez
+        if ((status === 401 || status === 403) && !original._retry && localStorage.getItem('refreshToken')) {
+            original._retry = true;
+            try {
+                refreshing = refreshing || refreshAccessToken().finally(() => { refreshing = null; });
+                const token = await refreshing;
+                original.headers.Authorization = `Bearer ${token}`;
+                return api(original);
+            } catch (e) {
+                // Sesión vencida o revocada: hay que volver a iniciar sesión
+                localStorage.removeItem('refreshToken');
+                if (status === 403) {
+                    localStorage.removeItem('token');
+                    localStorage.removeItem('user');
+                    window.location.href = '/login';
+                    return Promise.reject(error);
+                }
+            }
+        }
+        if (status === 401) {
             // Token expirado o inválido - limpiar y redirigir a login
             localStorage.removeItem('token');
+            localStorage.removeItem('refreshToken');
             localStorage.removeItem('user');
             window.location.href = '/login';
         }
@@ -46,6 +80,7 @@ export const authService = {
         const response = await api.post('/auth/authenticate', { email, password });
         if (response.data.token) {
             localStorage.setItem('token', response.data.token);
+            localStorage.setItem('refreshToken', response.data.refreshToken);
 
             // Decodificar JWT para obtener info del usuario
             try {
@@ -74,7 +109,13 @@ export const authService = {
     },
 
     logout: () => {
+        const refreshToken = localStorage.getItem('refreshToken');
+        if (refreshToken) {
+            // Revoca la sesión en el servidor; no hace falta esperar la respuesta
+            api.post('/auth/logout', { refreshToken }).catch(() => {});
+        }
         localStorage.removeItem('token');
+        localStorage.removeItem('refreshToken');
         localStorage.removeItem('user');
     },
 
@@ -147,13 +188,19 @@ export const cartService = {
 // ============ ORDERS ENDPOINTS ============
 
 export const orderService = {
-    create: async (shippingData, paymentMethod) => {
-        const response = await api.post('/orders', { shippingData, paymentMethod });
+    // Con Idempotency-Key: un reintento devuelve el mismo pedido en vez de crear otro
+    create: async (order, idempotencyKey) => {
+        const response = await api.post('/orders', order, {
+            headers: { 'Idempotency-Key': idempotencyKey },
+        });
         return response.data;
     },
 
-    getMyOrders: async () => {
-        const response = await api.get('/orders/my-orders');
+    // Historial paginado por cursor: { items, nextCursor, total }
+    getMyOrders: async (cursor = null, size = 20) => {
+        const params = { size };
+        if (cursor) params.cursor = cursor;
+        const response = await api.get('/orders', { params });
         return response.data;
     },
 
@@ -1,7 +1,8 @@
 package com.crochet.puntoylana.config;
 
-import com.crochet.puntoylana.repository.UserRepository;
+import com.crochet.puntoylana.service.UserLookupService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,18 +11,31 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
 
 @Configuration
 @RequiredArgsConstructor
 public class ApplicationConfig {
 
-    private final UserRepository repository;
+    private final UserLookupService userLookupService;
+
+    @Value("${app.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // Por defecto un hilo por núcleo: BCrypt es puro CPU
+    @Value("${app.security.hashing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int hashingThreads;
+
+    @Value("${app.security.hashing.queue:64}")
+    private int hashingQueue;
+
+    @Value("${app.security.hashing.timeout:5s}")
+    private Duration hashingTimeout;
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> repository.findByEmail(username)
+        return username -> userLookupService.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
     }
 
@@ -29,6 +43,8 @@ public class ApplicationConfig {
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService());
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashea al iniciar sesión si el costo de BCrypt guardado no es el configurado
+        authProvider.setUserDetailsPasswordService(userLookupService);
         return authProvider;
     }
 
@@ -38,7 +54,7 @@ public class ApplicationConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        return new BoundedPasswordEncoder(bcryptStrength, hashingThreads, hashingQueue, hashingTimeout);
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.crochet.puntoylana.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt en un pool propio del tamaño de la CPU, con cola acotada.
+ *
+ * Los hilos de Tomcat solo esperan el resultado: una ráfaga de logins ocupa
+ * este pool, no la CPU de todo el sitio. Si la cola está llena la operación
+ * falla de inmediato con 503 en vez de acumular requests.
+ *
+ * {@link #upgradeEncoding} pide re-hashear cuando el costo guardado es distinto
+ * al configurado (más alto o más bajo), así se puede ajustar sin resetear claves.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final Timing encodeTiming = new Timing();
+    private final Timing matchesTiming = new Timing();
+    private final LongAdder rejected = new LongAdder();
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueSize, Duration timeout) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.timeoutMillis = timeout.toMillis();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("🔑 Hash de contraseñas: BCrypt costo {}, {} hilos, cola de {}", strength, threads, queueSize);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTiming);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTiming);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("strength", strength);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("rejected", rejected.sum());
+        stats.put("encode", encodeTiming.snapshot());
+        stats.put("matches", matchesTiming.snapshot());
+        return stats;
+    }
+
+    private <T> T run(Callable<T> task, Timing timing) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    timing.record(start - submitted, System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ResponseStatusException busy() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Demasiados inicios de sesión en este momento, intenta de nuevo en unos segundos");
+    }
+
+    /**
+     * Conteo, espera en cola y tiempo de hash (promedio y máximo) de una operación.
+     */
+    private static final class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder queueNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+        void record(long waited, long ran) {
+            count.increment();
+            queueNanos.add(waited);
+            runNanos.add(ran);
+            maxRunNanos.accumulateAndGet(ran, Math::max);
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.sum();
+            return Map.of(
+                    "count", n,
+                    "avgQueueMs", n == 0 ? 0.0 : queueNanos.sum() / 1e6 / n,
+                    "avgMs", n == 0 ? 0.0 : runNanos.sum() / 1e6 / n,
+                    "maxMs", maxRunNanos.get() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.crochet.puntoylana.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DataSource con bulkhead: como mucho {@code permits} conexiones prestadas a la vez.
+ *
+ * Con hilos virtuales puede haber miles de requests bloqueados esperando la BD;
+ * el semáforo (justo, en orden de llegada) los forma antes de llegar al pool,
+ * mide cuánto esperan y corta con error si la espera pasa de {@code timeout}.
+ * El permiso se devuelve al cerrar la conexión.
+ */
+@Slf4j
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long timeoutNanos;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong waiting = new AtomicLong();
+
+    public BulkheadDataSource(DataSource target, int permits, Duration timeout) {
+        super(target);
+        this.maxPermits = permits;
+        this.permits = new Semaphore(permits, true);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Permisos para un pool Hikari: su tamaño máximo; para otro DataSource, {@code fallback}.
+     */
+    public static int poolSizeOf(DataSource dataSource, int fallback) {
+        return dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : fallback;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long count = acquired.sum();
+        return Map.of(
+                "permits", maxPermits,
+                "inUse", maxPermits - permits.availablePermits(),
+                "waiting", waiting.get(),
+                "acquired", count,
+                "timeouts", timeouts.sum(),
+                "avgWaitMs", count > 0 ? waitNanos.sum() / count / 1_000_000.0 : 0.0,
+                "maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean ok;
+        try {
+            ok = permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        long waited = System.nanoTime() - start;
+        if (!ok) {
+            timeouts.increment();
+            log.warn("⏳ Bulkhead de BD: sin conexión libre después de {} ms", waited / 1_000_000);
+            throw new SQLTransientConnectionException("Base de datos saturada, intenta de nuevo");
+        }
+        acquired.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    // La conexión devuelve el permiso al cerrarse (una sola vez)
+    private Connection guard(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,173 @@
+package com.crochet.puntoylana.config;
+
+/**
+ * Identidad de un cliente para rate limiting, empaquetada en dos longs.
+ *
+ * Las IPs se guardan como dirección IPv6 de 128 bits (las IPv4 como
+ * ::ffff:a.b.c.d), así la tabla de clientes no guarda ni compara Strings.
+ * Los usuarios autenticados usan {@link #USER_PREFIX} en la parte alta, que
+ * cae en el rango multicast (ff00::/8): nunca es la IP de origen de un request.
+ *
+ * El rate limit cuenta las IPv6 por su /64 ({@link #subnet()}): es lo que recibe
+ * un solo hogar o VM, y dentro de él se puede estrenar una dirección por request.
+ */
+public record ClientKey(long hi, long lo) {
+
+    static final long USER_PREFIX = 0xFFFF_0000_0000_0000L;
+    private static final long IPV4_MAPPED = 0x0000_FFFF_0000_0000L;
+    private static final long NAT64_PREFIX = 0x0064_FF9B_0000_0000L; // 64:ff9b::/96 lleva una IPv4 al final
+
+    public static final ClientKey UNKNOWN = new ClientKey(0, 0);
+
+    public static ClientKey ofUser(long userId) {
+        return new ClientKey(USER_PREFIX, userId);
+    }
+
+    /**
+     * Parsea una IP literal (sin consultar DNS). Devuelve null si no es válida.
+     */
+    public static ClientKey ofAddress(String text) {
+        if (text == null) {
+            return null;
+        }
+        String address = text.trim();
+        if (address.startsWith("[") && address.endsWith("]")) {
+            address = address.substring(1, address.length() - 1);
+        }
+        int zone = address.indexOf('%');
+        if (zone >= 0) {
+            address = address.substring(0, zone);
+        }
+        if (address.indexOf(':') >= 0) {
+            return parseIpv6(address);
+        }
+        long ipv4 = parseIpv4(address);
+        return ipv4 < 0 ? null : new ClientKey(0, IPV4_MAPPED | ipv4);
+    }
+
+    /**
+     * La misma clave con la parte de interfaz en cero si es una IPv6 global.
+     * Las IPv4 (mapeadas o por NAT64), los usuarios y ::/64 quedan como están.
+     */
+    public ClientKey subnet() {
+        if (hi == 0 || isUser() || (hi == NAT64_PREFIX && (lo >>> 32) == 0)) {
+            return this;
+        }
+        return new ClientKey(hi, 0);
+    }
+
+    public boolean isUser() {
+        return hi == USER_PREFIX;
+    }
+
+    public boolean isIpv4() {
+        return hi == 0 && (lo & 0xFFFF_FFFF_0000_0000L) == IPV4_MAPPED;
+    }
+
+    @Override
+    public String toString() {
+        if (isUser()) {
+            return "u:" + lo;
+        }
+        if (isIpv4()) {
+            return ((lo >>> 24) & 0xFF) + "." + ((lo >>> 16) & 0xFF) + "." + ((lo >>> 8) & 0xFF) + "." + (lo & 0xFF);
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int g = 0; g < 8; g++) {
+            long word = g < 4 ? hi : lo;
+            int shift = 48 - 16 * (g % 4);
+            if (g > 0) {
+                sb.append(':');
+            }
+            sb.append(Long.toHexString((word >>> shift) & 0xFFFF));
+        }
+        return sb.toString();
+    }
+
+    // a.b.c.d → 32 bits sin signo, o -1 si no es válida
+    private static long parseIpv4(String address) {
+        long result = 0;
+        int parts = 0;
+        int value = -1;
+        for (int i = 0; i <= address.length(); i++) {
+            char c = i < address.length() ? address.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || value > 255 || ++parts > 4) {
+                    return -1;
+                }
+                result = (result << 8) | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return parts == 4 ? result : -1;
+    }
+
+    private static ClientKey parseIpv6(String address) {
+        int gap = address.indexOf("::");
+        if (gap >= 0 && address.indexOf("::", gap + 1) >= 0) {
+            return null;
+        }
+        int[] head = gap >= 0 ? groups(address.substring(0, gap)) : groups(address);
+        int[] tail = gap >= 0 ? groups(address.substring(gap + 2)) : new int[0];
+        if (head == null || tail == null) {
+            return null;
+        }
+        int total = head.length + tail.length;
+        if (gap < 0 ? total != 8 : total > 7) {
+            return null;
+        }
+        int[] all = new int[8];
+        System.arraycopy(head, 0, all, 0, head.length);
+        System.arraycopy(tail, 0, all, 8 - tail.length, tail.length);
+        long hi = 0;
+        long lo = 0;
+        for (int g = 0; g < 4; g++) {
+            hi = (hi << 16) | all[g];
+            lo = (lo << 16) | all[g + 4];
+        }
+        return new ClientKey(hi, lo);
+    }
+
+    // Grupos hexadecimales de 16 bits; el último puede ser una IPv4 (cuenta como dos)
+    private static int[] groups(String part) {
+        if (part.isEmpty()) {
+            return new int[0];
+        }
+        String[] tokens = part.split(":", -1);
+        int last = tokens.length - 1;
+        boolean embeddedIpv4 = tokens[last].indexOf('.') >= 0;
+        int[] result = new int[tokens.length + (embeddedIpv4 ? 1 : 0)];
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (i == last && embeddedIpv4) {
+                long ipv4 = parseIpv4(token);
+                if (ipv4 < 0) {
+                    return null;
+                }
+                result[i] = (int) (ipv4 >>> 16);
+                result[i + 1] = (int) (ipv4 & 0xFFFF);
+                continue;
+            }
+            if (token.isEmpty() || token.length() > 4) {
+                return null;
+            }
+            int value = 0;
+            for (int k = 0; k < token.length(); k++) {
+                int digit = Character.digit(token.charAt(k), 16);
+                if (digit < 0) {
+                    return null;
+                }
+                value = (value << 4) | digit;
+            }
+            result[i] = value;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,217 @@
+package com.crochet.puntoylana.config;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Tabla de clientes de tamaño fijo: clave de 128 bits ({@link ClientKey}) → un long.
+ *
+ * Direccionamiento abierto con sondeo lineal sobre arrays primitivos, repartido
+ * en segmentos con su propio lock. Nunca guarda más de {@code maxEntries}
+ * claves: con el segmento lleno, una clave nueva desaloja a otra con el
+ * algoritmo CLOCK (LRU aproximado: cada acceso marca la entrada y la aguja
+ * desaloja la primera sin marcar que encuentra, desmarcando las que pasa).
+ * Así una ráfaga de IPs falsas no puede agotar la memoria ni generar basura.
+ */
+class ClientTable {
+
+    private static final int MAX_SEGMENTS = 64;
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    private static final byte REFERENCED = 2;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long seed = ThreadLocalRandom.current().nextLong(); // Distinto en cada arranque
+    private final int maxEntries;
+
+    ClientTable(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries debe ser positivo");
+        }
+        // Segmentos de al menos 16 entradas, potencia de 2
+        int count = Integer.highestOneBit(Math.clamp(maxEntries / 16, 1, MAX_SEGMENTS));
+        int perSegment = (maxEntries + count - 1) / count;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+        this.maxEntries = perSegment * count;
+    }
+
+    /**
+     * Reemplaza el valor de la clave por {@code update(actual)}, con {@code absent}
+     * como valor actual si la clave no está. Devuelve el valor anterior.
+     */
+    long update(ClientKey key, long absent, LongUnaryOperator update) {
+        long hash = hash(key.hi(), key.lo());
+        Segment segment = segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+        synchronized (segment) {
+            return segment.update(key.hi(), key.lo(), (int) hash, absent, update);
+        }
+    }
+
+    /**
+     * Borra las entradas cuyo valor cumple la condición. Devuelve cuántas borró.
+     */
+    int removeIf(LongPredicate condition) {
+        int removed = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                removed += segment.removeIf(condition);
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    Map<String, Object> stats() {
+        int size = 0;
+        long evictions = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+                evictions += segment.evictions;
+            }
+        }
+        return Map.of(
+                "keys", size,
+                "maxKeys", maxEntries,
+                "evictions", evictions);
+    }
+
+    // Mezcla de murmur3 (fmix64) con semilla, para que no se puedan elegir IPs que choquen
+    private long hash(long hi, long lo) {
+        long h = hi * 0x9E37_79B9_7F4A_7C15L ^ lo ^ seed;
+        h ^= h >>> 33;
+        h *= 0xFF51_AFD7_ED55_8CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CE_B9FE_1A85_EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Un segmento: arrays paralelos con ocupación máxima del 50% para sondeos cortos.
+     */
+    private final class Segment {
+        final long[] his;
+        final long[] los;
+        final long[] values;
+        final byte[] states;
+        final int mask;
+        final int capacity;
+        int size;
+        int hand;
+        long evictions;
+
+        Segment(int capacity) {
+            int length = Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+            this.his = new long[length];
+            this.los = new long[length];
+            this.values = new long[length];
+            this.states = new byte[length];
+            this.mask = length - 1;
+            this.capacity = capacity;
+        }
+
+        long update(long hi, long lo, int hash, long absent, LongUnaryOperator update) {
+            int slot = find(hi, lo, hash);
+            if (slot >= 0) {
+                long previous = values[slot];
+                values[slot] = update.applyAsLong(previous);
+                states[slot] = REFERENCED;
+                return previous;
+            }
+            if (size >= capacity) {
+                evict();
+            }
+            slot = hash & mask;
+            while (states[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            his[slot] = hi;
+            los[slot] = lo;
+            values[slot] = update.applyAsLong(absent);
+            states[slot] = USED; // Entra sin marca: si no se vuelve a ver, es el primero en salir
+            size++;
+            return absent;
+        }
+
+        int removeIf(LongPredicate condition) {
+            int removed = 0;
+            for (int slot = 0; slot <= mask; ) {
+                if (states[slot] != EMPTY && condition.test(values[slot])) {
+                    delete(slot); // El hueco puede recibir una entrada corrida: revisar el mismo slot
+                    removed++;
+                } else {
+                    slot++;
+                }
+            }
+            return removed;
+        }
+
+        private int find(long hi, long lo, int hash) {
+            int slot = hash & mask;
+            while (states[slot] != EMPTY) {
+                if (his[slot] == hi && los[slot] == lo) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        // CLOCK: la aguja desmarca entradas hasta encontrar una sin marcar
+        private void evict() {
+            while (true) {
+                hand = (hand + 1) & mask;
+                if (states[hand] == REFERENCED) {
+                    states[hand] = USED;
+                } else if (states[hand] == USED) {
+                    delete(hand);
+                    evictions++;
+                    return;
+                }
+            }
+        }
+
+        // Borrado con corrimiento hacia atrás: no deja lápidas que alarguen los sondeos
+        private void delete(int slot) {
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (states[next] == EMPTY) {
+                    break;
+                }
+                int home = (int) hash(his[next], los[next]) & mask;
+                // Se mueve al hueco si su posición ideal no está entre el hueco y donde quedó
+                boolean between = hole <= next
+                        ? hole < home && home <= next
+                        : hole < home || home <= next;
+                if (!between) {
+                    his[hole] = his[next];
+                    los[hole] = los[next];
+                    values[hole] = values[next];
+                    states[hole] = states[next];
+                    hole = next;
+                }
+            }
+            states[hole] = EMPTY;
+            size--;
+        }
+    }
+}
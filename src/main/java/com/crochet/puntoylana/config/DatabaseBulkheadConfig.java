@@ -0,0 +1,45 @@
+package com.crochet.puntoylana.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Envuelve el DataSource en un {@link BulkheadDataSource} (app.db.bulkhead.enabled).
+ *
+ * Pensado para el modo de hilos virtuales (spring.threads.virtual.enabled): los
+ * requests ya no se limitan por el pool de Tomcat, así que el tope de acceso
+ * concurrente a la BD queda en el tamaño del pool de Hikari.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.db.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseBulkheadConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de los beans
+    @Bean
+    public static BeanPostProcessor databaseBulkheadPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+                    return bean;
+                }
+                // 0 = tamaño máximo del pool de Hikari
+                int configured = environment.getProperty("app.db.bulkhead.permits", Integer.class, 0);
+                int permits = configured > 0 ? configured : BulkheadDataSource.poolSizeOf(dataSource, 10);
+                Duration timeout = environment.getProperty("app.db.bulkhead.timeout", Duration.class,
+                        Duration.ofSeconds(30));
+                log.info("🚧 Bulkhead de BD en '{}': {} conexiones concurrentes, espera máxima {}",
+                        beanName, permits, timeout);
+                return new BulkheadDataSource(dataSource, permits, timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.crochet.puntoylana.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitador GCRA (generic cell rate algorithm) por clave.
+ *
+ * Equivale a un token bucket, pero el estado de cada clave es un solo número:
+ * el TAT (theoretical arrival time), el instante en que el balde estaría lleno
+ * otra vez. Cada request lo adelanta un intervalo de emisión (período / tasa);
+ * se rechaza si eso lo deja más de {@code burst} intervalos en el futuro.
+ *
+ * Los TATs viven en una {@link ClientTable} de tamaño fijo: con IPs falsas de a
+ * millones la tabla desaloja las claves menos usadas en vez de crecer. Las
+ * claves con TAT vencido (balde lleno) las borra {@link #sweep()}, que llama
+ * una tarea programada y nunca el hilo del request.
+ */
+public class GcraLimiter implements RateLimiter {
+
+    private final int burst;
+    private final long emissionNanos; // costo de un request
+    private final long toleranceNanos; // emissionNanos * burst
+    private final long startNanos = System.nanoTime();
+    private final ClientTable tats;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+
+    /**
+     * @param burst  requests permitidos de una vez
+     * @param rate   requests sostenidos por período
+     * @param period período de la tasa sostenida
+     * @param maxKeys claves que se recuerdan como máximo
+     */
+    public GcraLimiter(int burst, int rate, Duration period, int maxKeys) {
+        if (burst <= 0 || rate <= 0) {
+            throw new IllegalArgumentException("burst y rate deben ser positivos");
+        }
+        this.burst = burst;
+        this.emissionNanos = Math.max(period.toNanos() / rate, 1);
+        this.toleranceNanos = emissionNanos * burst;
+        this.tats = new ClientTable(maxKeys);
+    }
+
+    @Override
+    public Decision tryAcquire(ClientKey key) {
+        long now = now();
+        // Se avanza el TAT solo si el request entra; la decisión se rehace con el valor anterior
+        long current = tats.update(key, now, tat -> {
+            long next = Math.max(tat, now) + emissionNanos;
+            return now < next - toleranceNanos ? tat : next;
+        });
+        long next = Math.max(current, now) + emissionNanos;
+        long allowAt = next - toleranceNanos;
+        if (now < allowAt) {
+            blocked.increment();
+            return new Decision(false, burst, 0, Duration.ofNanos(allowAt - now),
+                    Duration.ofNanos(current - now));
+        }
+        allowed.increment();
+        int remaining = (int) Math.min(burst, (now - allowAt) / emissionNanos);
+        return new Decision(true, burst, remaining, Duration.ZERO, Duration.ofNanos(next - now));
+    }
+
+    // Un balde lleno no cambia ninguna decisión: se puede olvidar
+    @Override
+    public int sweep() {
+        long now = now();
+        int removed = tats.removeIf(tat -> tat <= now);
+        swept.add(removed);
+        return removed;
+    }
+
+    public int size() {
+        return tats.size();
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(tats.stats());
+        stats.put("allowed", allowed.sum());
+        stats.put("blocked", blocked.sum());
+        stats.put("swept", swept.sum());
+        return stats;
+    }
+
+    private long now() {
+        return System.nanoTime() - startNanos;
+    }
+}
@@ -0,0 +1,43 @@
+package com.crochet.puntoylana.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores compartidos en memoria: todos los {@link SharedRateLimitBackend}
+ * que usen la misma instancia ven los mismos totales, como si fueran varias
+ * instancias de la app sobre una misma BD. Para tests y pruebas sin Postgres.
+ */
+public class InMemorySharedCounters implements SharedCounters {
+
+    private record Key(String policy, String key, long window) {
+    }
+
+    private final Map<Key, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public long[] addAndGet(List<Delta> deltas) {
+        long[] totals = new long[deltas.size()];
+        for (int i = 0; i < totals.length; i++) {
+            Delta delta = deltas.get(i);
+            totals[i] = counters.computeIfAbsent(new Key(delta.policy(), delta.key(), delta.window()),
+                    k -> new AtomicLong()).addAndGet(delta.hits());
+        }
+        return totals;
+    }
+
+    @Override
+    public void deleteBefore(String policy, long window) {
+        counters.keySet().removeIf(k -> k.policy().equals(policy) && k.window() < window);
+    }
+
+    /**
+     * Total guardado de un contador (0 si no existe).
+     */
+    public long get(String policy, String key, long window) {
+        AtomicLong total = counters.get(new Key(policy, key, window));
+        return total != null ? total.get() : 0;
+    }
+}
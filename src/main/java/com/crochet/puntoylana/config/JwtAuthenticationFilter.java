@@ -1,11 +1,17 @@
 package com.crochet.puntoylana.config;
 
+import com.crochet.puntoylana.entity.Role;
+import com.crochet.puntoylana.entity.User;
+import com.crochet.puntoylana.service.RevokedTokenFamilies;
+import com.crochet.puntoylana.service.UserLookupService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -24,6 +30,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserLookupService userLookupService;
+    private final RevokedTokenFamilies revokedFamilies;
+
+    static final String CLAIM_UID = "uid";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_FIRST_NAME = "firstName";
+    static final String CLAIM_EPOCH = "epoch";
+    static final String CLAIM_FAMILY = "fam";
+
+    // Construir el principal desde el token en vez de consultar la BD en cada request
+    @Value("${app.security.stateless:false}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(
@@ -49,14 +67,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 2. Intentar procesar el token JWT
         try {
             final String jwt = authHeader.substring(7);
-            final String userEmail = jwtService.extractUsername(jwt);
+            // Firma y expiración se verifican una sola vez (lanza excepción si no es válido)
+            final Claims claims = jwtService.verify(jwt);
+            final String userEmail = claims.getSubject();
+
+            // Sesión cerrada o revocada: el token deja de valer aunque no haya expirado
+            boolean revoked = revokedFamilies.isRevoked(claims.get(CLAIM_FAMILY, String.class));
+            if (revoked) {
+                log.debug("🚫 Token de una sesión revocada, continuando sin autenticación");
+            }
 
             // 3. Si hay email y el usuario no está autenticado todavía en el contexto
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            if (!revoked && userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // En modo stateless el usuario se arma con los claims, sin ir a la BD
+                User principal = stateless ? principalFromClaims(claims) : null;
+                UserDetails userDetails = principal != null
+                        ? principal
+                        : this.userDetailsService.loadUserByUsername(userEmail);
 
-                // 4. Validar token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                // 4. Validar que el token sea de este usuario y de su época de seguridad vigente
+                if (userEmail.equals(userDetails.getUsername()) && isCurrentEpoch(claims, userDetails, principal != null)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -76,4 +106,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Usuario liviano (no gestionado por JPA) con id, email, nombre y rol del token.
+     * Alcanza para los controladores, que solo usan esos datos o el id como referencia.
+     * Devuelve null si el token es anterior a estos claims.
+     */
+    private User principalFromClaims(Claims claims) {
+        Number uid = claims.get(CLAIM_UID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (uid == null || role == null) {
+            return null;
+        }
+        return User.builder()
+                .id(uid.longValue())
+                .email(claims.getSubject())
+                .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+                .role(Role.valueOf(role))
+                .securityEpoch(epochOf(claims))
+                .build();
+    }
+
+    private boolean isCurrentEpoch(Claims claims, UserDetails userDetails, boolean fromClaims) {
+        if (!(userDetails instanceof User user)) {
+            return true;
+        }
+        // El usuario cargado de la BD trae su época; el liviano se compara con la caché
+        int current = fromClaims
+                ? userLookupService.currentEpoch(user.getId()).orElse(-1)
+                : user.getSecurityEpoch();
+        return epochOf(claims) == current;
+    }
+
+    // Tokens emitidos antes de existir la época cuentan como época 0
+    private static int epochOf(Claims claims) {
+        Number epoch = claims.get(CLAIM_EPOCH, Number.class);
+        return epoch != null ? epoch.intValue() : 0;
+    }
 }
\ No newline at end of file
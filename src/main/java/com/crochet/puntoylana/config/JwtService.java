@@ -1,18 +1,29 @@
 package com.crochet.puntoylana.config;
 
+import com.crochet.puntoylana.service.ReadThroughCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
@@ -25,6 +36,31 @@ public class JwtService {
     @Value("${app.jwt.expiration-ms}")
     private long EXPIRATION_MS;
 
+    // Tokens ya verificados que se recuerdan (cada cliente reenvía el mismo en cada request)
+    @Value("${app.jwt.verified-cache-size:10000}")
+    private int VERIFIED_CACHE_SIZE;
+
+    // Clave y parser se arman una sola vez: son inmutables y thread-safe
+    private Key signInKey;
+    private JwtParser parser;
+
+    // SHA-256 del token → claims ya verificados, válidos hasta el exp del token.
+    // Llena, desaloja de a una con CLOCK: los tokens que se siguen usando se quedan
+    private ReadThroughCache<String, VerifiedToken> verified;
+
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.verified = new ReadThroughCache<>("jwt", VERIFIED_CACHE_SIZE, Duration.ofMillis(EXPIRATION_MS));
+    }
+
     // Generar token para el usuario (sin claims extra)
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
@@ -37,14 +73,32 @@ public class JwtService {
                 .setSubject(userDetails.getUsername()) // El email es el sujeto
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_MS))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifica firma y expiración una sola vez y devuelve los claims.
+     * Lanza {@link JwtException} si el token no es válido o ya expiró.
+     */
+    public Claims verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verified.get(digest, d -> Optional.of(parse(token))).orElseThrow();
+        if (System.currentTimeMillis() < cached.expiresAtMillis()) {
+            return cached.claims();
+        }
+        // Venció estando en la caché: el parser vuelve a verificarlo y lanza la excepción de expiración
+        verified.invalidate(digest);
+        return parse(token).claims();
+    }
+
     // Validar si el token le pertenece al usuario
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            return userDetails.getUsername().equals(verify(token).getSubject());
+        } catch (JwtException e) {
+            return false;
+        }
     }
 
     // Extraer el username (email) del token
@@ -52,30 +106,42 @@ public class JwtService {
         return extractClaim(token, Claims::getSubject);
     }
 
-    // Métodos auxiliares privados
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public long getExpirationSeconds() {
+        return EXPIRATION_MS / 1000;
+    }
+
+    public Map<String, Object> cacheStats() {
+        ReadThroughCache.Stats stats = verified.stats();
+        return Map.of(
+                "size", stats.size(),
+                "hits", stats.hits(),
+                "misses", stats.misses(),
+                "evictions", stats.evictions());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Tokens vencidos que nadie volvió a presentar
+    @Scheduled(fixedDelayString = "${app.cache.sweep-interval:60s}")
+    public void sweepVerifiedTokens() {
+        verified.purgeExpired();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Métodos auxiliares privados
+    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+        return claimsResolver.apply(verify(token));
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        return new VerifiedToken(claims, expiresAt);
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todo JRE trae SHA-256
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.crochet.puntoylana.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contadores de rate limiting en Postgres (tabla de db/migrations/009).
+ *
+ * La tabla es UNLOGGED: no pasa por el WAL (escrituras baratas) y se vacía si
+ * el servidor se cae, lo que para contadores de un minuto no importa. Cada
+ * sincronización es un único upsert con arreglos (unnest), sin importar
+ * cuántas claves lleve.
+ */
+@Slf4j
+public class PostgresSharedCounters implements SharedCounters {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO rate_limit_counters AS c (policy, client_key, window_id, hits)
+            SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::bigint[], ?::bigint[])
+            ON CONFLICT (policy, client_key, window_id) DO UPDATE SET hits = c.hits + EXCLUDED.hits
+            RETURNING policy, client_key, window_id, hits
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresSharedCounters(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        log.info("🚦 Rate limit compartido en Postgres (tabla rate_limit_counters)");
+    }
+
+    @Override
+    public long[] addAndGet(List<Delta> deltas) {
+        int n = deltas.size();
+        String[] policies = new String[n];
+        String[] keys = new String[n];
+        Long[] windows = new Long[n];
+        Long[] hits = new Long[n];
+        for (int i = 0; i < n; i++) {
+            Delta delta = deltas.get(i);
+            policies[i] = delta.policy();
+            keys[i] = delta.key();
+            windows[i] = delta.window();
+            hits[i] = delta.hits();
+        }
+
+        // RETURNING no garantiza el orden: se vuelve a emparejar por clave
+        Map<Delta, Long> totals = new HashMap<>(n * 2);
+        jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement(UPSERT_SQL)) {
+                Array a1 = con.createArrayOf("varchar", policies);
+                Array a2 = con.createArrayOf("varchar", keys);
+                Array a3 = con.createArrayOf("bigint", windows);
+                Array a4 = con.createArrayOf("bigint", hits);
+                ps.setArray(1, a1);
+                ps.setArray(2, a2);
+                ps.setArray(3, a3);
+                ps.setArray(4, a4);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        totals.put(new Delta(rs.getString(1), rs.getString(2), rs.getLong(3), 0), rs.getLong(4));
+                    }
+                }
+            }
+            return null;
+        });
+
+        long[] result = new long[n];
+        for (int i = 0; i < n; i++) {
+            Delta delta = deltas.get(i);
+            result[i] = totals.getOrDefault(new Delta(delta.policy(), delta.key(), delta.window(), 0), delta.hits());
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteBefore(String policy, long window) {
+        jdbcTemplate.update("DELETE FROM rate_limit_counters WHERE policy = ? AND window_id < ?", policy, window);
+    }
+}
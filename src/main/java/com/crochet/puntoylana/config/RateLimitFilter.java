@@ -1,33 +1,84 @@
 package com.crochet.puntoylana.config;
 
+import com.crochet.puntoylana.entity.User;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
- * Filtro de Rate Limiting para proteger contra ataques de fuerza bruta.
- * Límite: 100 requests por minuto por IP.
+ * Filtro de Rate Limiting para proteger contra ataques de fuerza bruta y abuso.
+ * Cada ruta tiene su política (ver {@link RateLimitProperties}): las costosas
+ * (login, IA) tienen cupos estrictos y la lectura del catálogo uno amplio.
+ *
+ * Corre después de Spring Security, así cuenta por usuario si hay token y por IP si no.
+ * Los headers X-Forwarded-For / X-Real-IP solo se creen si la conexión viene de
+ * un proxy de confianza ({@code app.rate-limit.trusted-proxies}).
  */
 @Slf4j
 @Component
 @Order(1)
 public class RateLimitFilter implements Filter {
 
-    // Almacena conteo de requests por IP
-    private final Map<String, RequestCounter> requestCounts = new ConcurrentHashMap<>();
+    private final SharedRateLimitBackend shared; // null = contadores locales de esta instancia
+    private final TrustedProxies trustedProxies;
+    private final CompiledPolicy defaultPolicy;
+    private final List<CompiledPolicy> policies;
 
-    // Configuración
-    private static final int MAX_REQUESTS_PER_MINUTE = 100;
-    private static final long WINDOW_SIZE_MS = 60_000; // 1 minuto
-    private static final long BLOCK_DURATION_MS = 300_000; // 5 minutos de bloqueo
+    /**
+     * Política con sus patrones ya parseados y su propio limitador.
+     */
+    private record CompiledPolicy(String name, List<PathPattern> patterns, Set<String> methods,
+            RateLimiter limiter, String header) {
+
+        static CompiledPolicy of(RateLimitProperties.Policy policy, SharedRateLimitBackend shared, int maxClients) {
+            // Compartido: la tasa se cumple entre todas las instancias (sin ráfaga aparte)
+            RateLimiter limiter = shared != null
+                    ? shared.limiter(policy.getName(), policy.getRate(), policy.getPeriod())
+                    : new GcraLimiter(policy.getBurst(), policy.getRate(), policy.getPeriod(), maxClients);
+            return new CompiledPolicy(
+                    policy.getName(),
+                    policy.getPatterns().stream().map(PathPatternParser.defaultInstance::parse).toList(),
+                    policy.getMethods().stream().map(String::toUpperCase).collect(Collectors.toSet()),
+                    limiter,
+                    // Formato del draft IETF: cuota;w=ventana en segundos
+                    policy.getRate() + ";w=" + policy.getPeriod().toSeconds() + ";burst=" + policy.getBurst());
+        }
+
+        boolean matches(String method, PathContainer path) {
+            return (methods.isEmpty() || methods.contains(method))
+                    && patterns.stream().anyMatch(pattern -> pattern.matches(path));
+        }
+    }
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectProvider<SharedRateLimitBackend> sharedBackend) {
+        this.shared = sharedBackend.getIfAvailable();
+        this.trustedProxies = new TrustedProxies(properties.getTrustedProxies());
+        int maxClients = properties.getMaxClients();
+        this.defaultPolicy = CompiledPolicy.of(properties.getDefaultPolicy(), shared, maxClients);
+        this.policies = properties.getPolicies().stream()
+                .map(p -> CompiledPolicy.of(p, shared, maxClients))
+                .toList();
+        log.info("🚦 Rate limit ({}): {} políticas + default ({})",
+                shared != null ? "compartido" : "local", policies.size(), defaultPolicy.header());
+    }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -36,7 +87,6 @@ public class RateLimitFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-        String clientIp = getClientIP(httpRequest);
         String path = httpRequest.getRequestURI();
 
         // Excluir assets estáticos del rate limiting
@@ -45,42 +95,74 @@ public class RateLimitFilter implements Filter {
             return;
         }
 
-        // Limpiar entradas antiguas periódicamente
-        cleanupOldEntries();
-
-        RequestCounter counter = requestCounts.computeIfAbsent(clientIp, k -> new RequestCounter());
+        CompiledPolicy policy = policyFor(httpRequest.getMethod(), path);
+        ClientKey key = clientKey(httpRequest);
+        RateLimiter.Decision decision = policy.limiter().tryAcquire(key);
 
-        // Verificar si está bloqueado
-        if (counter.isBlocked()) {
-            log.warn("🚫 IP bloqueada por rate limiting: {}", clientIp);
-            httpResponse.setStatus(429);
-            httpResponse.setContentType("application/json");
-            httpResponse.getWriter().write("{\"error\":\"Demasiadas solicitudes. Intenta en unos minutos.\"}");
-            return;
-        }
+        httpResponse.setHeader("RateLimit-Policy", policy.header());
+        httpResponse.setHeader("RateLimit-Limit", String.valueOf(decision.limit()));
+        httpResponse.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        httpResponse.setHeader("RateLimit-Reset", String.valueOf(ceilSeconds(decision.reset())));
 
         // Verificar límite
-        if (counter.incrementAndCheck()) {
+        if (decision.allowed()) {
             chain.doFilter(request, response);
         } else {
-            log.warn("⚠️ Rate limit excedido para IP: {}", clientIp);
-            counter.block();
+            log.warn("⚠️ Rate limit '{}' excedido para {}", policy.name(), key);
             httpResponse.setStatus(429);
+            httpResponse.setHeader("Retry-After", String.valueOf(Math.max(1, ceilSeconds(decision.retryAfter()))));
             httpResponse.setContentType("application/json");
-            httpResponse.getWriter().write("{\"error\":\"Has excedido el límite de solicitudes. Espera 5 minutos.\"}");
+            httpResponse.getWriter().write("{\"error\":\"Has excedido el límite de solicitudes. Intenta en unos segundos.\"}");
         }
     }
 
-    private String getClientIP(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+    /**
+     * Limpieza periódica de claves inactivas, fuera del camino del request
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval:60s}")
+    public void sweep() {
+        int removed = defaultPolicy.limiter().sweep();
+        for (CompiledPolicy policy : policies) {
+            removed += policy.limiter().sweep();
         }
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
+        if (removed > 0) {
+            log.debug("🧹 Rate limit: {} claves inactivas removidas", removed);
         }
-        return request.getRemoteAddr();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (CompiledPolicy policy : policies) {
+            stats.put(policy.name(), policy.limiter().stats());
+        }
+        stats.put(defaultPolicy.name(), defaultPolicy.limiter().stats());
+        if (shared != null) {
+            stats.put("shared", shared.stats());
+        }
+        return stats;
+    }
+
+    private CompiledPolicy policyFor(String method, String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (CompiledPolicy policy : policies) {
+            if (policy.matches(method, container)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+
+    // Usuario autenticado (el filtro JWT ya corrió) o, si no hay, la IP (las IPv6 por su /64)
+    private ClientKey clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user && user.getId() != null) {
+            return ClientKey.ofUser(user.getId());
+        }
+        return trustedProxies.clientAddress(request).subnet();
+    }
+
+    private static long ceilSeconds(Duration duration) {
+        return (duration.toMillis() + 999) / 1000;
     }
 
     private boolean isStaticResource(String path) {
@@ -95,44 +177,4 @@ public class RateLimitFilter implements Filter {
                 path.endsWith(".woff") ||
                 path.endsWith(".woff2");
     }
-
-    private void cleanupOldEntries() {
-        long now = System.currentTimeMillis();
-        requestCounts.entrySet().removeIf(entry -> now - entry.getValue().getWindowStart() > WINDOW_SIZE_MS * 10);
-    }
-
-    /**
-     * Contador de requests por IP con ventana de tiempo deslizante.
-     */
-    private static class RequestCounter {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private volatile long windowStart = System.currentTimeMillis();
-        private volatile long blockedUntil = 0;
-
-        public synchronized boolean incrementAndCheck() {
-            long now = System.currentTimeMillis();
-
-            // Nueva ventana de tiempo
-            if (now - windowStart > WINDOW_SIZE_MS) {
-                count.set(1);
-                windowStart = now;
-                return true;
-            }
-
-            // Incrementar y verificar límite
-            return count.incrementAndGet() <= MAX_REQUESTS_PER_MINUTE;
-        }
-
-        public boolean isBlocked() {
-            return System.currentTimeMillis() < blockedUntil;
-        }
-
-        public void block() {
-            blockedUntil = System.currentTimeMillis() + BLOCK_DURATION_MS;
-        }
-
-        public long getWindowStart() {
-            return windowStart;
-        }
-    }
 }
@@ -0,0 +1,62 @@
+package com.crochet.puntoylana.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Políticas de rate limiting por ruta (prefijo app.rate-limit).
+ *
+ * Se usa la primera política cuyo patrón (y método, si se indica) coincide;
+ * si ninguna coincide se aplica {@code default-policy}. Cada política cuenta
+ * por usuario autenticado o, si no hay token, por IP.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    // "local" (cada instancia cuenta por su lado) o "postgres" (compartido entre instancias)
+    private String backend = "local";
+
+    private Duration sweepInterval = Duration.ofSeconds(60);
+
+    // Clientes que recuerda cada política como máximo; con más, se desalojan los menos activos
+    private int maxClients = 100_000;
+
+    // Proxies cuyos X-Forwarded-For / X-Real-IP se creen (IP o CIDR)
+    private List<String> trustedProxies = new ArrayList<>(List.of(
+            "127.0.0.1/32", "::1/128", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "fc00::/7"));
+
+    // Cada cuánto se sincronizan los contadores con el backend compartido
+    private Duration syncInterval = Duration.ofMillis(50);
+
+    private Policy defaultPolicy = new Policy("default", List.of("/**"), List.of(), 100, 100, Duration.ofMinutes(1));
+
+    private List<Policy> policies = new ArrayList<>(List.of(
+            // Login/registro: frena fuerza bruta y ráfagas de BCrypt
+            new Policy("auth", List.of("/api/v1/auth/**"), List.of("POST"), 10, 20, Duration.ofMinutes(1)),
+            // Generación de imágenes con IA: cada llamada cuesta dinero
+            new Policy("ai", List.of("/api/v1/nano-banana/generate", "/api/v1/nano-banana/test"), List.of("POST"),
+                    3, 20, Duration.ofHours(1)),
+            // Lectura del catálogo: barata y servida desde memoria
+            new Policy("catalog", List.of("/api/v1/public/**"), List.of("GET"), 300, 1200, Duration.ofMinutes(1))));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Policy {
+        private String name;
+        private List<String> patterns = new ArrayList<>();
+        private List<String> methods = new ArrayList<>(); // Vacío = todos
+        private int burst; // Requests permitidos de una vez
+        private int rate; // Requests sostenidos por período
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
@@ -0,0 +1,33 @@
+package com.crochet.puntoylana.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Limitador de una política de rate limiting. Implementaciones: {@link GcraLimiter}
+ * (memoria local) y los de {@link SharedRateLimitBackend} (compartidos entre instancias).
+ */
+public interface RateLimiter {
+
+    /**
+     * Resultado de una consulta, con lo necesario para los headers RateLimit-* y Retry-After.
+     *
+     * @param remaining  requests que todavía se pueden hacer de inmediato
+     * @param retryAfter tiempo hasta el próximo request permitido (cero si se permitió)
+     * @param reset      tiempo hasta que la cuota esté completa otra vez
+     */
+    record Decision(boolean allowed, int limit, int remaining, Duration retryAfter, Duration reset) {
+    }
+
+    /**
+     * Cuenta un request de {@code key} si la cuota lo permite.
+     */
+    Decision tryAcquire(ClientKey key);
+
+    /**
+     * Libera las claves inactivas. Devuelve cuántas borró.
+     */
+    int sweep();
+
+    Map<String, Object> stats();
+}
@@ -0,0 +1,27 @@
+package com.crochet.puntoylana.config;
+
+import java.util.List;
+
+/**
+ * Almacén de contadores compartido entre instancias, usado por
+ * {@link SharedRateLimitBackend}. Recibe los incrementos ya agregados de
+ * varios requests y devuelve el total global de cada contador.
+ */
+public interface SharedCounters {
+
+    /**
+     * Incremento de un contador: {@code hits} requests de {@code key} en la ventana {@code window}.
+     */
+    record Delta(String policy, String key, long window, long hits) {
+    }
+
+    /**
+     * Suma los incrementos y devuelve el total resultante de cada uno, en el mismo orden.
+     */
+    long[] addAndGet(List<Delta> deltas);
+
+    /**
+     * Borra los contadores de la política en ventanas anteriores a {@code window}.
+     */
+    void deleteBefore(String policy, long window);
+}
@@ -0,0 +1,246 @@
+package com.crochet.puntoylana.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiting compartido entre instancias (app.rate-limit.backend=postgres).
+ *
+ * Cada política cuenta requests por clave en ventanas fijas de su período, y
+ * estima la tasa con ventana deslizante: total de la ventana actual + la
+ * anterior ponderada por lo que le queda dentro. Los requests se deciden con
+ * datos locales; cada pocos milisegundos {@link #sync()} manda a la BD los
+ * incrementos acumulados de todas las claves en un solo upsert y trae los
+ * totales globales (lo que sumaron las demás instancias).
+ *
+ * Entre sincronizaciones una instancia no ve lo que sumaron las otras, así
+ * que el límite puede pasarse por lo que entra en ese intervalo. Si la BD
+ * falla, cada instancia sigue limitando con sus propios conteos.
+ *
+ * La tabla de contadores tiene tope ({@code app.rate-limit.max-clients}): pasado
+ * el tope, los clientes nuevos comparten uno de {@link #OVERFLOW_BUCKETS}
+ * contadores según su hash, en vez de agregar filas sin límite.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "postgres")
+public class SharedRateLimitBackend {
+
+    static final int OVERFLOW_BUCKETS = 1024;
+
+    private final SharedCounters counters;
+    private final int maxCounters;
+    private final LongSupplier clock; // Reloj de pared: todas las instancias usan las mismas ventanas
+    private final Map<CounterKey, Counter> table = new ConcurrentHashMap<>();
+
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder syncErrors = new LongAdder();
+    private final LongAdder syncedRows = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    private record CounterKey(String policy, String key, long window) {
+    }
+
+    /**
+     * Total global conocido en la última sincronización + lo contado aquí desde entonces.
+     */
+    private static final class Counter {
+        final AtomicLong global = new AtomicLong();
+        final LongAdder pending = new LongAdder();
+        volatile boolean touched = true;
+
+        long total() {
+            return global.get() + pending.sum();
+        }
+    }
+
+    public SharedRateLimitBackend(JdbcTemplate jdbcTemplate, RateLimitProperties properties) {
+        this(new PostgresSharedCounters(jdbcTemplate), properties.getMaxClients(), System::currentTimeMillis);
+    }
+
+    SharedRateLimitBackend(SharedCounters counters, int maxClients, LongSupplier clock) {
+        this.counters = counters;
+        this.clock = clock;
+        // Cada clave usa dos contadores (ventana actual y anterior)
+        this.maxCounters = Math.max(maxClients, 1) * 2;
+    }
+
+    /**
+     * Limitador de una política. {@code rate} por {@code period} se cumple entre todas las instancias.
+     */
+    public RateLimiter limiter(String policy, int rate, Duration period) {
+        return new SlidingWindow(policy, rate, Math.max(period.toMillis(), 1));
+    }
+
+    /**
+     * Manda los incrementos pendientes y refresca los totales de las claves en uso.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sync-interval:50ms}")
+    public void sync() {
+        List<CounterKey> keys = new ArrayList<>();
+        List<SharedCounters.Delta> deltas = new ArrayList<>();
+        table.forEach((key, counter) -> {
+            if (!counter.touched) {
+                return;
+            }
+            counter.touched = false;
+            long hits = counter.pending.sumThenReset();
+            // Mientras viaja a la BD el incremento se cuenta como global, para no perderlo de vista
+            counter.global.addAndGet(hits);
+            keys.add(key);
+            deltas.add(new SharedCounters.Delta(key.policy(), key.key(), key.window(), hits));
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            long[] totals = counters.addAndGet(deltas);
+            for (int i = 0; i < keys.size(); i++) {
+                Counter counter = table.get(keys.get(i));
+                if (counter != null) {
+                    counter.global.set(totals[i]);
+                }
+            }
+            syncs.increment();
+            syncedRows.add(deltas.size());
+        } catch (RuntimeException e) {
+            // Se reintenta en la próxima sincronización; mientras tanto se limita con lo local
+            syncErrors.increment();
+            for (int i = 0; i < keys.size(); i++) {
+                Counter counter = table.get(keys.get(i));
+                if (counter != null) {
+                    counter.global.addAndGet(-deltas.get(i).hits());
+                    counter.pending.add(deltas.get(i).hits());
+                    counter.touched = true;
+                }
+            }
+            log.warn("⚠️ No se pudo sincronizar el rate limit compartido: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "counters", table.size(),
+                "syncs", syncs.sum(),
+                "maxCounters", maxCounters,
+                "overflowed", overflowed.sum(),
+                "syncedRows", syncedRows.sum(),
+                "syncErrors", syncErrors.sum());
+    }
+
+    /**
+     * Ventana deslizante aproximada sobre los contadores compartidos.
+     */
+    private final class SlidingWindow implements RateLimiter {
+
+        private final String policy;
+        private final int rate;
+        private final long periodMillis;
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder blocked = new LongAdder();
+        private volatile long lastCleanupWindow = 0;
+
+        SlidingWindow(String policy, int rate, long periodMillis) {
+            this.policy = policy;
+            this.rate = rate;
+            this.periodMillis = periodMillis;
+        }
+
+        @Override
+        public Decision tryAcquire(ClientKey clientKey) {
+            String key = keyFor(clientKey);
+            long now = clock.getAsLong();
+            long window = now / periodMillis;
+            long elapsed = now - window * periodMillis;
+            double previousWeight = 1.0 - (double) elapsed / periodMillis;
+
+            Counter current = counter(key, window);
+            current.touched = true; // Clave en uso: refrescar su total global en la próxima sincronización
+            // La ventana anterior sigue pesando en la estimación: también se refresca, así se ven
+            // los requests que otras instancias le sumaron al final (aunque aquí ya no se sume nada)
+            Counter previous = counter(key, window - 1);
+            previous.touched = true;
+            long previousTotal = previous.total();
+            double estimate = previousTotal * previousWeight + current.total();
+            Duration reset = Duration.ofMillis(periodMillis - elapsed);
+
+            if (estimate + 1 > rate) {
+                blocked.increment();
+                return new Decision(false, rate, 0, retryAfter(previousTotal, current.total(), elapsed), reset);
+            }
+            current.pending.increment();
+            allowed.increment();
+            return new Decision(true, rate, (int) Math.max(0, rate - estimate - 1), Duration.ZERO, reset);
+        }
+
+        // Cuánto falta para que la parte de la ventana anterior baje lo suficiente (o empiece la siguiente)
+        private Duration retryAfter(long previousTotal, long currentTotal, long elapsed) {
+            long untilNextWindow = periodMillis - elapsed;
+            if (previousTotal == 0 || currentTotal + 1 > rate) {
+                return Duration.ofMillis(untilNextWindow);
+            }
+            double neededWeight = (double) (rate - currentTotal - 1) / previousTotal;
+            long at = (long) Math.ceil((1.0 - neededWeight) * periodMillis);
+            return Duration.ofMillis(Math.clamp(at - elapsed, 1, untilNextWindow));
+        }
+
+        // Clave conocida, o su balde compartido si la tabla está llena
+        private String keyFor(ClientKey clientKey) {
+            String key = clientKey.toString();
+            long window = clock.getAsLong() / periodMillis;
+            if (table.size() < maxCounters || table.containsKey(new CounterKey(policy, key, window))) {
+                return key;
+            }
+            overflowed.increment();
+            return "~" + Math.floorMod(clientKey.hashCode(), OVERFLOW_BUCKETS);
+        }
+
+        private Counter counter(String key, long window) {
+            CounterKey counterKey = new CounterKey(policy, key, window);
+            Counter counter = table.get(counterKey);
+            if (counter == null) {
+                // Clave nueva: se sincroniza en la próxima pasada aunque no se permita nada
+                counter = table.computeIfAbsent(counterKey, k -> new Counter());
+            }
+            return counter;
+        }
+
+        // Solo las dos últimas ventanas cuentan para la estimación
+        @Override
+        public int sweep() {
+            long window = clock.getAsLong() / periodMillis;
+            int before = table.size();
+            table.keySet().removeIf(k -> k.policy().equals(policy) && k.window() < window - 1);
+            if (window - 1 > lastCleanupWindow) {
+                lastCleanupWindow = window - 1;
+                try {
+                    counters.deleteBefore(policy, window - 1);
+                } catch (RuntimeException e) {
+                    log.warn("⚠️ No se pudieron limpiar contadores viejos: {}", e.getMessage());
+                }
+            }
+            return Math.max(before - table.size(), 0);
+        }
+
+        @Override
+        public Map<String, Object> stats() {
+            return Map.of(
+                    "allowed", allowed.sum(),
+                    "blocked", blocked.sum(),
+                    "backend", "postgres");
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.crochet.puntoylana.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.resource.HttpResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Índice en memoria de classpath:/static/, armado una sola vez al arrancar.
+ *
+ * Cada archivo queda con sus bytes, un ETag (hash del contenido) y sus
+ * variantes comprimidas: gzip se genera aquí con compresión máxima; brotli
+ * se usa si el build dejó un archivo .br al lado (la JDK no trae encoder).
+ * Así servir un asset no toca el classpath ni comprime nada por request.
+ */
+@Slf4j
+@Component
+public class StaticAssetIndex {
+
+    private static final String LOCATION = "classpath:/static/";
+    private static final int MIN_COMPRESS_SIZE = 1024;
+    private static final Set<String> COMPRESSIBLE = Set.of(
+            "html", "js", "mjs", "css", "json", "svg", "xml", "txt", "map", "webmanifest");
+
+    private final Map<String, Asset> assets = new HashMap<>();
+
+    /**
+     * Un archivo estático con sus variantes (null si no conviene o no existe).
+     */
+    private record Asset(String path, byte[] identity, byte[] gzip, byte[] brotli, String etag) {
+    }
+
+    public StaticAssetIndex() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Resource root = resolver.getResource(LOCATION);
+        String rootUrl = root.exists() ? root.getURL().toString() : null;
+
+        Map<String, byte[]> files = new HashMap<>();
+        for (Resource resource : resolver.getResources(LOCATION + "**/*")) {
+            if (rootUrl == null || !resource.isReadable() || resource.getFilename() == null) {
+                continue;
+            }
+            String url = resource.getURL().toString();
+            if (!url.startsWith(rootUrl) || url.endsWith("/")) {
+                continue; // Directorios
+            }
+            try (var in = resource.getInputStream()) {
+                files.put(url.substring(rootUrl.length()), in.readAllBytes());
+            }
+        }
+
+        long identityBytes = 0;
+        long gzipBytes = 0;
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            String path = file.getKey();
+            if (path.endsWith(".gz") || path.endsWith(".br")) {
+                continue; // Variantes precomprimidas: se asocian a su original
+            }
+            byte[] identity = file.getValue();
+            byte[] gzip = files.get(path + ".gz");
+            if (gzip == null && isCompressible(path, identity)) {
+                gzip = gzip(identity);
+            }
+            if (gzip != null && gzip.length >= identity.length) {
+                gzip = null;
+            }
+            Asset asset = new Asset(path, identity, gzip, files.get(path + ".br"), etag(identity));
+            assets.put(path, asset);
+            identityBytes += identity.length;
+            gzipBytes += gzip != null ? gzip.length : identity.length;
+        }
+        log.info("📦 Assets estáticos en memoria: {} archivos, {} KB ({} KB con gzip)",
+                assets.size(), identityBytes / 1024, gzipBytes / 1024);
+    }
+
+    /**
+     * Variante del archivo que mejor acepta el cliente, o null si no existe.
+     *
+     * @param path ruta relativa a /static/, sin barra inicial
+     */
+    public Resource resolve(String path, HttpServletRequest request) {
+        Asset asset = assets.get(path);
+        if (asset == null) {
+            return null;
+        }
+        String acceptEncoding = request != null ? request.getHeader(HttpHeaders.ACCEPT_ENCODING) : null;
+        boolean varies = asset.gzip() != null || asset.brotli() != null;
+        if (asset.brotli() != null && accepts(acceptEncoding, "br")) {
+            return new AssetResource(asset, asset.brotli(), "br", varies);
+        }
+        if (asset.gzip() != null && accepts(acceptEncoding, "gzip")) {
+            return new AssetResource(asset, asset.gzip(), "gzip", varies);
+        }
+        return new AssetResource(asset, asset.identity(), null, varies);
+    }
+
+    public boolean contains(String path) {
+        return assets.containsKey(path);
+    }
+
+    /**
+     * ETag de un recurso de este índice (distinto por variante), o null si no es de aquí.
+     */
+    public static String etagOf(Resource resource) {
+        return resource instanceof AssetResource asset ? asset.etag : null;
+    }
+
+    public Map<String, Object> stats() {
+        long identity = 0;
+        long gzip = 0;
+        long brotli = 0;
+        for (Asset asset : assets.values()) {
+            identity += asset.identity().length;
+            gzip += asset.gzip() != null ? asset.gzip().length : 0;
+            brotli += asset.brotli() != null ? asset.brotli().length : 0;
+        }
+        return Map.of(
+                "files", assets.size(),
+                "identityBytes", identity,
+                "gzipBytes", gzip,
+                "brotliBytes", brotli);
+    }
+
+    /**
+     * Archivo en memoria. Content-Encoding y Vary los agrega ResourceHttpRequestHandler.
+     */
+    private static final class AssetResource extends ByteArrayResource implements HttpResource {
+
+        private final String filename;
+        private final String encoding;
+        private final boolean varies;
+        private final String etag;
+
+        AssetResource(Asset asset, byte[] bytes, String encoding, boolean varies) {
+            super(bytes, asset.path());
+            this.filename = asset.path().substring(asset.path().lastIndexOf('/') + 1);
+            this.encoding = encoding;
+            this.varies = varies;
+            this.etag = encoding != null ? asset.etag() + "-" + encoding : asset.etag();
+        }
+
+        // El nombre original define el Content-Type, no la variante
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            if (encoding != null) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+            }
+            if (varies) {
+                headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            return headers;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || (other instanceof AssetResource that && etag.equals(that.etag));
+        }
+
+        @Override
+        public int hashCode() {
+            return etag.hashCode();
+        }
+    }
+
+    // Acepta la codificación si figura sin q=0
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (params[0].trim().equalsIgnoreCase(coding)) {
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim().replace(" ", "");
+                    if (param.startsWith("q=") && isZero(param.substring(2))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZero(String quality) {
+        try {
+            return Double.parseDouble(quality) == 0;
+        } catch (NumberFormatException e) {
+            return true; // q mal formado: no arriesgar una codificación que quizá no entiende
+        }
+    }
+
+    private static boolean isCompressible(String path, byte[] content) {
+        int dot = path.lastIndexOf('.');
+        return content.length >= MIN_COMPRESS_SIZE
+                && dot >= 0
+                && COMPRESSIBLE.contains(path.substring(dot + 1).toLowerCase());
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(hash, 0, 16); // Spring le agrega las comillas
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todo JRE trae SHA-256
+        }
+    }
+}
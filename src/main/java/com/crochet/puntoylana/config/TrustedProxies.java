@@ -0,0 +1,102 @@
+package com.crochet.puntoylana.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resuelve la IP real del cliente respetando solo los proxies de confianza.
+ *
+ * X-Forwarded-For y X-Real-IP los puede escribir cualquiera: solo se leen si
+ * la conexión viene de un proxy configurado, y X-Forwarded-For se recorre de
+ * derecha a izquierda saltando proxies de confianza, así el cliente no puede
+ * inventarse una IP agregando valores a la izquierda.
+ */
+public class TrustedProxies {
+
+    private record Range(long hi, long lo, long maskHi, long maskLo) {
+        boolean contains(ClientKey key) {
+            return (key.hi() & maskHi) == hi && (key.lo() & maskLo) == lo;
+        }
+    }
+
+    private final List<Range> ranges = new ArrayList<>();
+
+    /**
+     * @param cidrs rangos tipo "10.0.0.0/8" o "fc00::/7"; una IP sin prefijo es una sola dirección
+     */
+    public TrustedProxies(List<String> cidrs) {
+        for (String cidr : cidrs) {
+            if (cidr == null || cidr.isBlank()) {
+                continue;
+            }
+            String[] parts = cidr.trim().split("/");
+            ClientKey base = ClientKey.ofAddress(parts[0]);
+            if (base == null) {
+                throw new IllegalArgumentException("Proxy de confianza no válido: " + cidr);
+            }
+            int bits = base.isIpv4() ? 32 : 128;
+            int prefix = parts.length > 1 ? Integer.parseInt(parts[1]) : bits;
+            if (prefix < 0 || prefix > bits) {
+                throw new IllegalArgumentException("Prefijo no válido: " + cidr);
+            }
+            int prefix128 = base.isIpv4() ? 96 + prefix : prefix;
+            long maskHi = mask(prefix128);
+            long maskLo = mask(prefix128 - 64);
+            ranges.add(new Range(base.hi() & maskHi, base.lo() & maskLo, maskHi, maskLo));
+        }
+    }
+
+    public boolean isTrusted(ClientKey key) {
+        for (Range range : ranges) {
+            if (range.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * IP del cliente: la de la conexión, o la que informan los proxies de confianza.
+     */
+    public ClientKey clientAddress(HttpServletRequest request) {
+        ClientKey remote = ClientKey.ofAddress(request.getRemoteAddr());
+        if (remote == null) {
+            return ClientKey.UNKNOWN;
+        }
+        if (!isTrusted(remote)) {
+            return remote;
+        }
+
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isEmpty()) {
+            String[] hops = forwardedFor.split(",");
+            ClientKey client = remote;
+            for (int i = hops.length - 1; i >= 0; i--) {
+                ClientKey hop = ClientKey.ofAddress(hops[i]);
+                if (hop == null) {
+                    break; // Valor basura: quedarse con el último salto válido
+                }
+                client = hop;
+                if (!isTrusted(hop)) {
+                    break;
+                }
+            }
+            return client;
+        }
+        ClientKey realIp = ClientKey.ofAddress(request.getHeader("X-Real-IP"));
+        return realIp != null ? realIp : remote;
+    }
+
+    // Máscara con los primeros 'bits' bits en 1 (sobre 64)
+    private static long mask(int bits) {
+        if (bits <= 0) {
+            return 0;
+        }
+        if (bits >= 64) {
+            return -1L;
+        }
+        return -1L << (64 - bits);
+    }
+}
@@ -1,44 +1,84 @@
 package com.crochet.puntoylana.config;
 
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
 
-import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * Configuración para servir el frontend React desde Spring Boot
  * Maneja las rutas del SPA (React Router) redirigiendo a index.html
+ *
+ * Los archivos salen de {@link StaticAssetIndex} (memoria, con gzip/brotli ya
+ * armados). Los de /assets/ llevan hash en el nombre: se cachean un año como
+ * inmutables. El resto (index.html, sw.js, manifest...) se revalida con ETag.
  */
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
+    private static final String INDEX_HTML = "index.html";
+
+    private final StaticAssetIndex staticAssets;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // Assets con hash de contenido: un nombre nuevo por cada build
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .setUseLastModified(false)
+                .setEtagGenerator(StaticAssetIndex::etagOf)
+                .resourceChain(false)
+                .addResolver(new IndexedResolver("assets/", false));
+
         registry.addResourceHandler("/**")
                 .addResourceLocations("classpath:/static/")
-                .resourceChain(true)
-                .addResolver(new PathResourceResolver() {
-                    @Override
-                    protected Resource getResource(String resourcePath, Resource location) throws IOException {
-                        Resource requestedResource = location.createRelative(resourcePath);
-
-                        // Si el recurso existe y es legible, devolverlo
-                        if (requestedResource.exists() && requestedResource.isReadable()) {
-                            return requestedResource;
-                        }
-
-                        // Si no existe y NO es una petición de API, devolver index.html
-                        // Esto permite que React Router maneje las rutas del frontend
-                        if (!resourcePath.startsWith("api/")) {
-                            return new ClassPathResource("/static/index.html");
-                        }
-
-                        return null;
-                    }
-                });
+                .setCacheControl(CacheControl.noCache())
+                .setUseLastModified(false)
+                .setEtagGenerator(StaticAssetIndex::etagOf)
+                .resourceChain(false)
+                .addResolver(new IndexedResolver("", true));
+    }
+
+    /**
+     * Busca en el índice en memoria en vez de preguntarle al classpath en cada request.
+     */
+    @RequiredArgsConstructor
+    private class IndexedResolver implements ResourceResolver {
+
+        private final String prefix;
+        private final boolean spaFallback;
+
+        @Override
+        public Resource resolveResource(HttpServletRequest request, String requestPath,
+                List<? extends Resource> locations, ResourceResolverChain chain) {
+            Resource resource = staticAssets.resolve(prefix + requestPath, request);
+            if (resource != null) {
+                return resource;
+            }
+
+            // Si no existe y NO es una petición de API, devolver index.html
+            // Esto permite que React Router maneje las rutas del frontend
+            if (spaFallback && !requestPath.startsWith("api/")) {
+                return staticAssets.resolve(INDEX_HTML, request);
+            }
+
+            return null;
+        }
+
+        @Override
+        public String resolveUrlPath(String resourcePath, List<? extends Resource> locations,
+                ResourceResolverChain chain) {
+            return staticAssets.contains(prefix + resourcePath) ? resourcePath : null;
+        }
     }
 }
@@ -1,18 +1,41 @@
 package com.crochet.puntoylana.controller;
 
+import com.crochet.puntoylana.config.BoundedPasswordEncoder;
+import com.crochet.puntoylana.config.BulkheadDataSource;
+import com.crochet.puntoylana.config.JwtService;
+import com.crochet.puntoylana.config.RateLimitFilter;
+import com.crochet.puntoylana.config.StaticAssetIndex;
+import com.crochet.puntoylana.dto.AnnouncementRequest;
+import com.crochet.puntoylana.dto.BulkUpdateRequest;
+import com.crochet.puntoylana.dto.ImportReport;
 import com.crochet.puntoylana.dto.ProductRequest;
 import com.crochet.puntoylana.entity.Product;
 import com.crochet.puntoylana.entity.Role;
 import com.crochet.puntoylana.entity.User;
 import com.crochet.puntoylana.repository.UserRepository;
+import com.crochet.puntoylana.service.EmailDispatcher;
+import com.crochet.puntoylana.service.EmailService;
+import com.crochet.puntoylana.service.HotStockLedger;
+import com.crochet.puntoylana.service.OrderHistoryService;
+import com.crochet.puntoylana.service.OrderIdempotencyService;
+import com.crochet.puntoylana.service.ProductBulkService;
 import com.crochet.puntoylana.service.ProductService;
+import com.crochet.puntoylana.service.RefreshTokenService;
+import com.crochet.puntoylana.service.RevokedTokenFamilies;
+import com.crochet.puntoylana.service.UserLookupService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -26,8 +49,21 @@ import java.util.Map;
 public class AdminController {
 
     private final ProductService productService;
+    private final ProductBulkService productBulkService;
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final UserLookupService userLookupService;
+    private final RefreshTokenService refreshTokenService;
+    private final RevokedTokenFamilies revokedTokenFamilies;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final JwtService jwtService;
+    private final RateLimitFilter rateLimitFilter;
+    private final StaticAssetIndex staticAssetIndex;
+    private final HotStockLedger hotStockLedger;
+    private final OrderIdempotencyService orderIdempotencyService;
+    private final OrderHistoryService orderHistoryService;
+    private final EmailService emailService;
+    private final EmailDispatcher emailDispatcher;
+    private final DataSource dataSource;
 
     // ==================== PRODUCTOS ====================
 
@@ -40,6 +76,25 @@ public class AdminController {
         return ResponseEntity.ok(productService.findAll());
     }
 
+    /**
+     * Listado paginado por cursor (admin)
+     */
+    @GetMapping("/products/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getProductPage(
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "full") String fields) {
+        try {
+            return ResponseEntity.ok(productService.page(category, sort, cursor, size,
+                    PublicController.isSummary(fields)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Crear nuevo producto
      */
@@ -62,6 +117,17 @@ public class AdminController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Marcar producto como hot (lanzamiento): su stock se reserva en memoria
+     */
+    @PutMapping("/products/{id}/hot")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Product> setHotStock(@PathVariable Long id, @RequestParam boolean enabled) {
+        return productService.setHotStock(id, enabled)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Eliminar producto
      */
@@ -74,6 +140,57 @@ public class AdminController {
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Importar productos (upsert por SKU) desde CSV o JSON lines.
+     * El cuerpo se procesa en streaming; devuelve el reporte de errores por fila.
+     */
+    @PostMapping("/products/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            InputStream body) throws IOException {
+        try {
+            ImportReport report = productBulkService.importProducts(body, format);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Exportar todos los productos como CSV o JSON lines (en streaming)
+     */
+    @GetMapping("/products/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        MediaType type = switch (format.toLowerCase()) {
+            case "csv" -> new MediaType("text", "csv", StandardCharsets.UTF_8);
+            case "jsonl" -> MediaType.APPLICATION_NDJSON;
+            default -> null;
+        };
+        if (type == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Formato no soportado: " + format + " (csv, jsonl)"));
+        }
+        StreamingResponseBody body = out -> productBulkService.exportProducts(out, format);
+        return ResponseEntity.ok()
+                .contentType(type)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos." + format.toLowerCase() + "\"")
+                .body(body);
+    }
+
+    /**
+     * Ajuste masivo de precio/stock por categoría y/o lista de SKUs
+     */
+    @PostMapping("/products/bulk-update")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkUpdate(@RequestBody BulkUpdateRequest request) {
+        try {
+            return ResponseEntity.ok(Map.of("updated", productBulkService.bulkUpdate(request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // ==================== USUARIOS ====================
 
     /**
@@ -94,12 +211,33 @@ public class AdminController {
         return userRepository.findById(id)
                 .map(user -> {
                     user.setRole(Role.ROLE_ADMIN);
+                    user.setSecurityEpoch(user.getSecurityEpoch() + 1); // Debe volver a iniciar sesión
                     userRepository.save(user);
+                    userLookupService.evict(user);
+                    refreshTokenService.revokeAll(user);
                     return ResponseEntity.ok(Map.of("message", "Usuario promovido a admin"));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Anuncio por email a todos los usuarios (se encola; el dispatcher lo envía en lotes)
+     */
+    @PostMapping("/announcements")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> sendAnnouncement(@RequestBody AnnouncementRequest request) {
+        if (isBlank(request.subject()) || isBlank(request.title()) || isBlank(request.message())) {
+            return ResponseEntity.badRequest().body(Map.of("error", "subject, title y message son obligatorios"));
+        }
+        int queued = emailService.sendAnnouncement(userRepository.findAll(),
+                request.subject().strip(), request.title().strip(), request.message());
+        return ResponseEntity.ok(Map.of("queued", queued));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     // ==================== ESTADÍSTICAS ====================
 
     /**
@@ -115,4 +253,26 @@ public class AdminController {
                 "totalProducts", totalProducts,
                 "totalUsers", totalUsers));
     }
+
+    /**
+     * Métricas internas (cachés en memoria)
+     */
+    @GetMapping("/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(Map.ofEntries(
+                Map.entry("userCache", userLookupService.stats()),
+                Map.entry("jwtCache", jwtService.cacheStats()),
+                Map.entry("passwordHashing", passwordEncoder.stats()),
+                Map.entry("revokedTokens", revokedTokenFamilies.stats()),
+                Map.entry("rateLimit", rateLimitFilter.stats()),
+                Map.entry("staticAssets", staticAssetIndex.stats()),
+                Map.entry("hotStock", hotStockLedger.stats()),
+                Map.entry("orderIdempotency", orderIdempotencyService.stats()),
+                Map.entry("orderHistory", orderHistoryService.stats()),
+                Map.entry("emailOutbox", emailDispatcher.stats()),
+                Map.entry("dbBulkhead", dataSource instanceof BulkheadDataSource bulkhead
+                        ? bulkhead.stats()
+                        : Map.of("enabled", false))));
+    }
 }
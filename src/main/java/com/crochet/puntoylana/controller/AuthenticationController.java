@@ -2,15 +2,19 @@ package com.crochet.puntoylana.controller;
 
 import com.crochet.puntoylana.dto.AuthenticationRequest;
 import com.crochet.puntoylana.dto.AuthenticationResponse;
+import com.crochet.puntoylana.dto.RefreshRequest;
 import com.crochet.puntoylana.dto.RegisterRequest;
 import com.crochet.puntoylana.service.AuthenticationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -31,6 +35,28 @@ public class AuthenticationController {
         return ResponseEntity.ok(service.authenticate(request));
     }
 
+    /**
+     * Cambiar un refresh token por un par nuevo (el anterior deja de servir)
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        if (request.getRefreshToken() == null || request.getRefreshToken().isBlank()) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", "refreshToken es obligatorio"));
+        }
+        return ResponseEntity.ok(service.refresh(request.getRefreshToken()));
+    }
+
+    /**
+     * Cerrar sesión: revoca el refresh token y los access tokens de su sesión
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshRequest request) {
+        if (request.getRefreshToken() != null && !request.getRefreshToken().isBlank()) {
+            service.logout(request.getRefreshToken());
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Registrar un admin (requiere clave secreta en header)
      * Header: X-Admin-Secret: puntoylana-admin-2026
@@ -41,8 +67,24 @@ public class AuthenticationController {
             @RequestHeader(value = "X-Admin-Secret", required = false) String adminSecret) {
         try {
             return ResponseEntity.ok(service.registerAdmin(request, adminSecret));
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * 503 (pool de hash de contraseñas saturado, el cliente puede reintentar pronto)
+     * o 401 (refresh token inválido)
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<?> handleStatus(ResponseStatusException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(e.getStatusCode());
+        if (e.getStatusCode().value() == 503) {
+            response.header(HttpHeaders.RETRY_AFTER, "2");
+        }
+        return response
+                .body(java.util.Map.of("error", e.getReason() != null ? e.getReason() : "Servicio no disponible"));
+    }
 }
\ No newline at end of file
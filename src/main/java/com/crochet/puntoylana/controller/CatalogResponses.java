@@ -0,0 +1,116 @@
+package com.crochet.puntoylana.controller;
+
+import com.crochet.puntoylana.service.CatalogSnapshot;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Enumeration;
+
+/**
+ * Arma las respuestas HTTP a partir de los bytes pre-serializados del
+ * {@link CatalogSnapshot}. Si el cliente acepta gzip se envía la variante
+ * comprimida con Content-Encoding, y Tomcat no vuelve a comprimirla.
+ *
+ * También agrega ETag y Cache-Control, y responde 304 cuando el If-None-Match
+ * del cliente coincide, sin tocar la base de datos. No se manda Last-Modified:
+ * los productos no guardan cuándo cambiaron y una hora por instancia haría
+ * que cada réplica contestara distinto; los ETag salen del contenido.
+ */
+@Component
+public class CatalogResponses {
+
+    private final CacheControl cacheControl;
+
+    public CatalogResponses(
+            @Value("${app.catalog.cache.max-age:60s}") Duration maxAge,
+            @Value("${app.catalog.cache.stale-while-revalidate:5m}") Duration staleWhileRevalidate,
+            @Value("${app.catalog.cache.stale-if-error:1d}") Duration staleIfError) {
+        this.cacheControl = CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .staleWhileRevalidate(staleWhileRevalidate)
+                .staleIfError(staleIfError);
+    }
+
+    public ResponseEntity<byte[]> ok(CatalogSnapshot.Body body, HttpServletRequest request) {
+        boolean gzip = body.gzip() != null && acceptsGzip(request);
+        String etag = gzip ? body.gzipEtag() : body.etag();
+
+        if (isNotModified(request, etag)) {
+            return notModified(etag);
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag)
+                .cacheControl(cacheControl);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? body.gzip() : body.json());
+    }
+
+    /**
+     * Respuesta para contenido generado en cada request (ej: búsquedas).
+     * El ETag es débil porque Tomcat puede comprimir el cuerpo al vuelo.
+     */
+    public <T> ResponseEntity<T> ok(T body, String etag) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(body);
+    }
+
+    // Un 304 repite los headers de caché del 200, Vary incluido (RFC 9110 15.4.5)
+    public <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+
+    /**
+     * ETag débil para una respuesta derivada del catálogo: el hash del snapshot
+     * ({@link CatalogSnapshot.State#tag()}) más el hash de una clave del request,
+     * los dos con {@link CatalogSnapshot#contentTag}.
+     */
+    public static String weakEtag(String catalogTag, String key) {
+        return "W/\"" + catalogTag + "-" + CatalogSnapshot.contentTag(key.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * If-None-Match usa comparación débil: se ignora el prefijo W/ de ambos lados.
+     */
+    public boolean isNotModified(HttpServletRequest request, String etag) {
+        String expected = stripWeak(etag);
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (headers.hasMoreElements()) {
+            for (String candidate : headers.nextElement().split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || stripWeak(tag).equals(expected)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
@@ -1,35 +1,71 @@
 package com.crochet.puntoylana.controller;
 
+import com.crochet.puntoylana.dto.OrderDetail;
 import com.crochet.puntoylana.dto.OrderRequest;
 import com.crochet.puntoylana.entity.Order;
 import com.crochet.puntoylana.entity.User;
-import com.crochet.puntoylana.service.OrderService;
+import com.crochet.puntoylana.service.InsufficientStockException;
+import com.crochet.puntoylana.service.OrderHistoryService;
+import com.crochet.puntoylana.service.OrderIdempotencyService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/orders")
 @RequiredArgsConstructor
 public class OrderController {
 
-    private final OrderService service;
+    private final OrderIdempotencyService idempotencyService;
+    private final OrderHistoryService historyService;
 
-    // Crear pedido (Comprar)
+    // Crear pedido (Comprar). Con Idempotency-Key, un reintento devuelve el mismo pedido
     @PostMapping
     public ResponseEntity<Order> createOrder(
             @AuthenticationPrincipal User user, // ¡Truco mágico! Spring nos da el usuario del token
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody OrderRequest request) {
-        return ResponseEntity.ok(service.createOrder(user, request));
+        return ResponseEntity.ok(idempotencyService.createOrder(user, idempotencyKey, request));
     }
 
-    // Ver mis pedidos
+    // Ver mis pedidos (paginado por cursor, más nuevos primero)
     @GetMapping
-    public ResponseEntity<List<Order>> getMyOrders(
-            @AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(service.getMyOrders(user));
+    public ResponseEntity<?> getMyOrders(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(historyService.page(user, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
-}
\ No newline at end of file
+
+    // Detalle de un pedido propio (envío, tracking y productos)
+    @GetMapping("/{id}")
+    public ResponseEntity<OrderDetail> getMyOrder(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id) {
+        return historyService.detail(user, id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // 400 / 409 / 422 de Idempotency-Key con el mismo formato de error que el resto
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> handleStatus(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode())
+                .body(Map.of("error", e.getReason() != null ? e.getReason() : "Solicitud inválida"));
+    }
+
+    // 409 con el detalle de cada línea sin stock, para que el carrito pueda ajustarse
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Map<String, Object>> handleInsufficientStock(InsufficientStockException e) {
+        return ResponseEntity.status(e.getStatusCode())
+                .body(Map.of("error", e.getReason(), "items", e.getShortages()));
+    }
+}
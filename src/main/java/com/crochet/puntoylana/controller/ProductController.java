@@ -22,7 +22,7 @@ public class ProductController {
         return ResponseEntity.ok(service.save(request));
     }
 
-    // Ver todos los productos (GET)
+    // Ver todos los productos (GET). Desde la BD: el admin edita sobre este stock
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
         return ResponseEntity.ok(service.findAll());
@@ -1,12 +1,25 @@
 package com.crochet.puntoylana.controller;
 
-import com.crochet.puntoylana.entity.Product;
+import com.crochet.puntoylana.dto.CatalogBrowseResult;
+import com.crochet.puntoylana.dto.ProductPage;
+import com.crochet.puntoylana.dto.ProductView;
+import com.crochet.puntoylana.dto.Suggestion;
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.service.CatalogFacets;
+import com.crochet.puntoylana.service.CatalogSnapshot;
 import com.crochet.puntoylana.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Controlador PÚBLICO - No requiere autenticación
@@ -18,38 +31,167 @@ import java.util.List;
 public class PublicController {
 
     private final ProductService productService;
+    private final CatalogSnapshot catalogSnapshot;
+    private final CatalogFacets catalogFacets;
+    private final CatalogResponses responses;
 
     /**
      * Obtener todos los productos (público)
+     * Se sirve desde el snapshot en memoria, ya serializado y comprimido
      */
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.findAll());
+    public ResponseEntity<byte[]> getAllProducts(HttpServletRequest request) {
+        return responses.ok(catalogSnapshot.current().all(), request);
+    }
+
+    /**
+     * Listado paginado por cursor (público)
+     * Ej: /products/page?category=YARN&sort=price&size=24&cursor=...
+     * fields=summary (default) solo trae lo que muestra el grid; fields=full trae todo
+     */
+    @GetMapping("/products/page")
+    public ResponseEntity<?> getProductPage(
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int size,
+            @RequestParam(defaultValue = "summary") String fields,
+            HttpServletRequest request) {
+        CatalogSnapshot.State catalog = catalogSnapshot.current();
+        String etag = CatalogResponses.weakEtag(catalog.tag(), "page?" + request.getQueryString());
+        if (responses.isNotModified(request, etag)) {
+            return responses.notModified(etag);
+        }
+
+        try {
+            ProductPage<?> page = productService.page(category, sort, cursor, size, isSummary(fields));
+            return responses.ok(page, etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Navegación con filtros combinados y conteos por faceta (público)
+     * Ej: /products/browse?category=YARN,NEEDLE&price=0-20000&inStock=true&type=physical&sort=price
+     * Se resuelve en memoria con bitmaps, sin consultar la BD
+     */
+    @GetMapping("/products/browse")
+    public ResponseEntity<?> browse(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String price,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "24") int size,
+            HttpServletRequest request) {
+        CatalogSnapshot.State catalog = catalogSnapshot.current();
+        String etag = CatalogResponses.weakEtag(catalog.tag(), "browse?" + request.getQueryString());
+        if (responses.isNotModified(request, etag)) {
+            return responses.notModified(etag);
+        }
+
+        Set<Category> categories = EnumSet.noneOf(Category.class);
+        for (String value : splitParam(category)) {
+            try {
+                categories.add(Category.valueOf(value.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Categoría no válida: " + value));
+            }
+        }
+        try {
+            CatalogBrowseResult result = catalogFacets.browse(new CatalogFacets.Query(
+                    categories, splitParam(price), minPrice, maxPrice, inStock, type, sort, page, size));
+            return responses.ok(result, etag);
+        } catch (IllegalArgumentException e) {
+            // Tipo, rango de precio, orden o página no válidos
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Obtener un producto por ID (público)
      */
     @GetMapping("/products/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return productService.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id, HttpServletRequest request) {
+        CatalogSnapshot.State catalog = catalogSnapshot.current();
+        CatalogSnapshot.Body body = catalog.byProduct().get(id);
+        if (body == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return responses.ok(body, request);
     }
 
     /**
      * Buscar productos por categoría (público)
      */
     @GetMapping("/products/category/{category}")
-    public ResponseEntity<List<Product>> getByCategory(@PathVariable String category) {
-        return ResponseEntity.ok(productService.findByCategory(category));
+    public ResponseEntity<byte[]> getByCategory(@PathVariable String category, HttpServletRequest request) {
+        CatalogSnapshot.State catalog = catalogSnapshot.current();
+        try {
+            Category parsed = Category.valueOf(category.toUpperCase());
+            return responses.ok(catalog.byCategory().get(parsed), request);
+        } catch (IllegalArgumentException e) {
+            // Categoría no válida, devolver lista vacía
+            return responses.ok(CatalogSnapshot.EMPTY_LIST, request);
+        }
     }
 
     /**
-     * Buscar productos por nombre (público)
+     * Buscar productos (público)
+     * Busca en nombre, descripción y categoría; tolera tildes y errores de tipeo
      */
     @GetMapping("/products/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
-        return ResponseEntity.ok(productService.search(q));
+    public ResponseEntity<List<ProductView>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request) {
+        // Si hay un 304, el índice ni se consulta
+        CatalogSnapshot.State catalog = catalogSnapshot.current();
+        String etag = CatalogResponses.weakEtag(catalog.tag(), "search?" + q.trim().toLowerCase() + "|" + limit);
+
+        if (responses.isNotModified(request, etag)) {
+            return responses.notModified(etag);
+        }
+        return responses.ok(productService.search(q, limit), etag);
+    }
+
+    /**
+     * Autocompletado del buscador (público)
+     * Ej: /products/suggest?q=algo → "Algodón Premium", ...
+     */
+    @GetMapping("/products/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit,
+            HttpServletRequest request) {
+        CatalogSnapshot.State catalog = catalogSnapshot.current();
+        String etag = CatalogResponses.weakEtag(catalog.tag(), "suggest?" + q.trim().toLowerCase() + "|" + limit);
+
+        if (responses.isNotModified(request, etag)) {
+            return responses.notModified(etag);
+        }
+        return responses.ok(productService.suggest(q, limit), etag);
+    }
+
+    private static Set<String> splitParam(String value) {
+        if (value == null || value.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    static boolean isSummary(String fields) {
+        return switch (fields.toLowerCase()) {
+            case "summary" -> true;
+            case "full" -> false;
+            default -> throw new IllegalArgumentException("fields debe ser 'summary' o 'full'");
+        };
     }
 }
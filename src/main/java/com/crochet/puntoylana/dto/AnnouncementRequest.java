@@ -0,0 +1,9 @@
+package com.crochet.puntoylana.dto;
+
+/**
+ * Anuncio por email a todos los usuarios (novedades del catálogo, etc.).
+ *
+ * @param message texto plano; una línea en blanco separa párrafos
+ */
+public record AnnouncementRequest(String subject, String title, String message) {
+}
@@ -10,5 +10,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class AuthenticationResponse {
-    private String token;
+    private String token; // Access token (vida corta)
+    private String refreshToken; // Para pedir un access token nuevo en /api/v1/auth/refresh
+    private long expiresIn; // Segundos de vida del access token
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.crochet.puntoylana.dto;
+
+import com.crochet.puntoylana.entity.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Ajuste masivo de precio/stock. Se aplica como un solo UPDATE sobre los
+ * productos que cumplan el filtro (categoría y/o lista de SKUs; sin filtro, todos).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUpdateRequest {
+    // Filtro
+    private Category category;
+    private List<String> skus;
+
+    // Ajustes (los null no se aplican)
+    private BigDecimal pricePercent; // ej: 10 = +10%, -15 = -15%
+    private BigDecimal priceDelta; // suma fija al precio
+    private Integer stockDelta; // suma (o resta) al stock
+    private Integer stockSet; // reemplaza el stock
+}
@@ -0,0 +1,22 @@
+package com.crochet.puntoylana.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de la navegación filtrada del catálogo.
+ *
+ * @param items  productos de la página pedida, ya ordenados
+ * @param total  total de productos que cumplen los filtros
+ * @param page   número de página (desde 0)
+ * @param size   tamaño de página
+ * @param facets conteos por faceta ("category", "price", "type", "availability"),
+ *               cada uno calculado con los demás filtros aplicados
+ */
+public record CatalogBrowseResult(
+        List<ProductView> items,
+        int total,
+        int page,
+        int size,
+        Map<String, Map<String, Integer>> facets) {
+}
@@ -0,0 +1,21 @@
+package com.crochet.puntoylana.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva.
+ *
+ * @param processed filas leídas (sin contar el encabezado)
+ * @param imported  filas insertadas o actualizadas
+ * @param failed    filas rechazadas
+ * @param errors    detalle por fila rechazada (se guardan como máximo las primeras 1000)
+ * @param millis    duración total
+ */
+public record ImportReport(int processed, int imported, int failed, List<RowError> errors, long millis) {
+
+    /**
+     * @param line número de línea del archivo (1 = primera línea)
+     */
+    public record RowError(long line, String sku, String message) {
+    }
+}
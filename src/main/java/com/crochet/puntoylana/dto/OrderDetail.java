@@ -0,0 +1,40 @@
+package com.crochet.puntoylana.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Detalle de un pedido para el historial del cliente: envío, tracking y líneas.
+ */
+public record OrderDetail(
+        Long id,
+        LocalDateTime date,
+        String status,
+        BigDecimal totalAmount,
+        String shippingAddress,
+        String shippingPhone,
+        String notes,
+        String paymentMethod,
+        String shippingCompany,
+        String trackingNumber,
+        String trackingUrl,
+        LocalDateTime shippedAt,
+        LocalDateTime deliveredAt,
+        List<OrderLine> items) {
+
+    // Cabecera sola (proyección JPQL); las líneas se agregan con withItems
+    public OrderDetail(Long id, LocalDateTime date, String status, BigDecimal totalAmount,
+            String shippingAddress, String shippingPhone, String notes, String paymentMethod,
+            String shippingCompany, String trackingNumber, String trackingUrl,
+            LocalDateTime shippedAt, LocalDateTime deliveredAt) {
+        this(id, date, status, totalAmount, shippingAddress, shippingPhone, notes, paymentMethod,
+                shippingCompany, trackingNumber, trackingUrl, shippedAt, deliveredAt, List.of());
+    }
+
+    public OrderDetail withItems(List<OrderLine> items) {
+        return new OrderDetail(id, date, status, totalAmount, shippingAddress, shippingPhone, notes,
+                paymentMethod, shippingCompany, trackingNumber, trackingUrl, shippedAt, deliveredAt,
+                List.copyOf(items));
+    }
+}
@@ -0,0 +1,11 @@
+package com.crochet.puntoylana.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Línea de un pedido con lo justo del producto para mostrarla (sin descripción).
+ *
+ * @param price precio unitario al momento de la compra
+ */
+public record OrderLine(Long productId, String productName, String imageUrl, Integer quantity, BigDecimal price) {
+}
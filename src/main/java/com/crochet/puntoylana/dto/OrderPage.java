@@ -0,0 +1,16 @@
+package com.crochet.puntoylana.dto;
+
+import java.util.List;
+
+/**
+ * Página del historial de pedidos, paginado por cursor (keyset).
+ *
+ * @param nextCursor cursor opaco para la siguiente página, o null si es la última
+ * @param total      total de pedidos del usuario; solo viene en la primera página
+ */
+public record OrderPage(List<OrderSummary> items, String nextCursor, Long total) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
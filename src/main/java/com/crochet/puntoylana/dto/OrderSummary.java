@@ -0,0 +1,13 @@
+package com.crochet.puntoylana.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Fila del historial de pedidos: solo la cabecera, sin usuario ni items.
+ *
+ * @param itemCount cantidad de líneas del pedido
+ */
+public record OrderSummary(Long id, LocalDateTime date, String status, BigDecimal totalAmount,
+        Integer itemCount, String trackingUrl) {
+}
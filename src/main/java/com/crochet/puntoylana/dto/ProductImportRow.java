@@ -0,0 +1,20 @@
+package com.crochet.puntoylana.dto;
+
+import com.crochet.puntoylana.entity.Category;
+
+import java.math.BigDecimal;
+
+/**
+ * Una fila de la importación masiva de productos (CSV o JSON lines).
+ * El SKU identifica el producto: si ya existe se actualiza, si no se crea.
+ */
+public record ProductImportRow(
+        String sku,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer stock,
+        String imageUrl,
+        String digitalUrl,
+        Category category) {
+}
@@ -0,0 +1,16 @@
+package com.crochet.puntoylana.dto;
+
+import java.util.List;
+
+/**
+ * Página de un listado paginado por cursor (keyset).
+ *
+ * @param items      elementos de esta página
+ * @param nextCursor cursor opaco para pedir la siguiente página, o null si es la última
+ */
+public record ProductPage<T>(List<T> items, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
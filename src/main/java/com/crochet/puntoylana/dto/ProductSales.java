@@ -0,0 +1,10 @@
+package com.crochet.puntoylana.dto;
+
+/**
+ * Unidades vendidas de un producto (proyección de OrderRepository).
+ */
+public interface ProductSales {
+    Long getProductId();
+
+    Long getUnits();
+}
@@ -0,0 +1,23 @@
+package com.crochet.puntoylana.dto;
+
+import com.crochet.puntoylana.entity.Category;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección liviana de producto para el grid del catálogo.
+ * Spring Data solo selecciona estas columnas (sin description ni digitalUrl).
+ */
+public interface ProductSummary {
+    Long getId();
+
+    String getName();
+
+    BigDecimal getPrice();
+
+    String getImageUrl();
+
+    Category getCategory();
+
+    Integer getStock();
+}
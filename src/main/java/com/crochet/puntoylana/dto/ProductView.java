@@ -0,0 +1,35 @@
+package com.crochet.puntoylana.dto;
+
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Vista inmutable de un producto para el catálogo público.
+ * Serializa exactamente los mismos campos que la entidad {@link Product}.
+ */
+public record ProductView(
+        Long id,
+        String sku,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer stock,
+        String imageUrl,
+        String digitalUrl,
+        Category category) {
+
+    public static ProductView from(Product product) {
+        return new ProductView(
+                product.getId(),
+                product.getSku(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getStock(),
+                product.getImageUrl(),
+                product.getDigitalUrl(),
+                product.getCategory());
+    }
+}
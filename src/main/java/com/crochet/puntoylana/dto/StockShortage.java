@@ -0,0 +1,10 @@
+package com.crochet.puntoylana.dto;
+
+/**
+ * Línea de un pedido que no se pudo reservar por falta de stock.
+ *
+ * @param requested unidades pedidas (sumando las líneas del mismo producto)
+ * @param available unidades disponibles al momento de intentar la reserva
+ */
+public record StockShortage(Long productId, String productName, int requested, int available) {
+}
@@ -0,0 +1,14 @@
+package com.crochet.puntoylana.dto;
+
+import com.crochet.puntoylana.entity.Category;
+
+/**
+ * Sugerencia del autocompletado del buscador.
+ *
+ * @param text      texto a mostrar
+ * @param type      "product" o "category"
+ * @param productId id del producto (null para categorías)
+ * @param category  categoría del producto o la categoría sugerida
+ */
+public record Suggestion(String text, String type, Long productId, Category category) {
+}
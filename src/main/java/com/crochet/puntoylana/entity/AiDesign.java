@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class AiDesign {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ai_designs_seq")
+    @SequenceGenerator(name = "ai_designs_seq", sequenceName = "ai_designs_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -16,9 +16,13 @@ import java.math.BigDecimal;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
+    @Column(unique = true, length = 64)
+    private String sku; // Código del proveedor, clave para importaciones masivas
+
     private String name;
 
     @Column(length = 1000) // Permitimos descripciones largas
@@ -28,6 +32,10 @@ public class Product {
 
     private Integer stock; // Cantidad disponible (para físicos)
 
+    // Stock en memoria con escritura diferida (lanzamientos con mucha demanda, ver HotStockLedger)
+    @Column(name = "hot_stock", nullable = false)
+    private boolean hotStock;
+
     private String imageUrl; // URL de la foto (luego veremos cómo subirla)
 
     // Solo para productos digitales (Link al PDF o Video)
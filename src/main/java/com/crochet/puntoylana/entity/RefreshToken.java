@@ -0,0 +1,46 @@
+package com.crochet.puntoylana.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Refresh token emitido al iniciar sesión. Solo se guarda su hash SHA-256.
+ *
+ * Cada refresh rota el token: el usado queda marcado y se emite otro de la
+ * misma familia. Si un token ya usado vuelve a presentarse (robo), se revoca
+ * la familia completa.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "refresh_tokens")
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_seq")
+    @SequenceGenerator(name = "refresh_tokens_seq", sequenceName = "refresh_tokens_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash; // SHA-256 en hex
+
+    @Column(nullable = false, length = 36)
+    private String familyId; // Mismo valor para todos los tokens de una sesión
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime usedAt; // Rotado: ya no sirve para refrescar
+
+    private LocalDateTime revokedAt; // Familia revocada (logout, reuso, cambio de rol)
+}
@@ -22,7 +22,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 @Table(name = "users") // Postgres usa 'user' como reservada, mejor usar '_user' o 'users'
 public class User implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     private String firstName;
@@ -35,6 +36,11 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    // Se incrementa al cambiar rol o credenciales: invalida los tokens emitidos antes
+    @JsonIgnore
+    @Column(nullable = false)
+    private int securityEpoch;
+
     // Metodos User Detail para Spring Security
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
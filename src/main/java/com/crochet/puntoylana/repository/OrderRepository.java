@@ -1,10 +1,67 @@
 package com.crochet.puntoylana.repository;
 
+import com.crochet.puntoylana.dto.OrderDetail;
+import com.crochet.puntoylana.dto.OrderLine;
+import com.crochet.puntoylana.dto.OrderSummary;
+import com.crochet.puntoylana.dto.ProductSales;
 import com.crochet.puntoylana.entity.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    // Buscar todos los pedidos de un usuario específico
-    List<Order> findByUserId(Long userId);
-}
\ No newline at end of file
+    // Historial del usuario (más nuevos primero). Solo columnas de la cabecera: sin User ni items
+    @Query("""
+            select new com.crochet.puntoylana.dto.OrderSummary(o.id, o.date, o.status, o.totalAmount, size(o.items), o.trackingUrl)
+            from Order o
+            where o.user.id = :userId
+            order by o.date desc, o.id desc
+            """)
+    List<OrderSummary> findHistory(@Param("userId") Long userId, Limit limit);
+
+    // Página siguiente por keyset: pedidos anteriores a (date, id) del último de la página previa
+    @Query("""
+            select new com.crochet.puntoylana.dto.OrderSummary(o.id, o.date, o.status, o.totalAmount, size(o.items), o.trackingUrl)
+            from Order o
+            where o.user.id = :userId
+              and (o.date < :date or (o.date = :date and o.id < :id))
+            order by o.date desc, o.id desc
+            """)
+    List<OrderSummary> findHistoryBefore(@Param("userId") Long userId, @Param("date") LocalDateTime date,
+            @Param("id") Long id, Limit limit);
+
+    long countByUserId(Long userId);
+
+    // Cabecera del detalle, solo si el pedido es del usuario
+    @Query("""
+            select new com.crochet.puntoylana.dto.OrderDetail(o.id, o.date, o.status, o.totalAmount,
+                o.shippingAddress, o.shippingPhone, o.notes, o.paymentMethod,
+                o.shippingCompany, o.trackingNumber, o.trackingUrl, o.shippedAt, o.deliveredAt)
+            from Order o
+            where o.id = :orderId and o.user.id = :userId
+            """)
+    Optional<OrderDetail> findDetail(@Param("orderId") Long orderId, @Param("userId") Long userId);
+
+    // Líneas del detalle con lo justo del producto, en una sola consulta
+    @Query("""
+            select new com.crochet.puntoylana.dto.OrderLine(p.id, p.name, p.imageUrl, i.quantity, i.price)
+            from OrderItem i left join i.product p
+            where i.order.id = :orderId
+            order by i.id
+            """)
+    List<OrderLine> findLines(@Param("orderId") Long orderId);
+
+    // Pedido completo (items y productos) para responder fuera de la transacción
+    @EntityGraph(attributePaths = { "user", "items", "items.product" })
+    Optional<Order> findWithItemsById(Long id);
+
+    // Unidades vendidas por producto (popularidad para las sugerencias)
+    @Query("select i.product.id as productId, sum(i.quantity) as units from OrderItem i group by i.product.id")
+    List<ProductSales> sumUnitsByProduct();
+}
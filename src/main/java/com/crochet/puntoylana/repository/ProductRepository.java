@@ -2,6 +2,10 @@ package com.crochet.puntoylana.repository;
 
 import com.crochet.puntoylana.entity.Category;
 import com.crochet.puntoylana.entity.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
@@ -11,4 +15,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     // Buscar productos por nombre (búsqueda parcial, ignora mayúsculas)
     List<Product> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+
+    // Listados paginados por keyset: el tipo decide la proyección (ProductSummary o Product)
+    <T> Window<T> findAllBy(ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    <T> Window<T> findByCategory(Category category, ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    // Orden por precio en dos tramos (ver ProductCursor): primero con precio, después sin precio
+    <T> Window<T> findByPriceNotNull(ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    <T> Window<T> findByCategoryAndPriceNotNull(Category category, ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    <T> Window<T> findByPriceIsNull(ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    <T> Window<T> findByCategoryAndPriceIsNull(Category category, ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+}
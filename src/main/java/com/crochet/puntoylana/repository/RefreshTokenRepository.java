@@ -0,0 +1,33 @@
+package com.crochet.puntoylana.repository;
+
+import com.crochet.puntoylana.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("select r from RefreshToken r join fetch r.user where r.tokenHash = :hash")
+    Optional<RefreshToken> findByTokenHash(@Param("hash") String tokenHash);
+
+    // Marca el token como usado solo si nadie lo usó ni lo revocó antes (1 = lo ganó este request)
+    @Modifying
+    @Query("update RefreshToken r set r.usedAt = :now where r.id = :id and r.usedAt is null and r.revokedAt is null")
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update RefreshToken r set r.revokedAt = :now where r.familyId = :family and r.revokedAt is null")
+    int revokeFamily(@Param("family") String familyId, @Param("now") LocalDateTime now);
+
+    @Query("select distinct r.familyId from RefreshToken r where r.user.id = :userId and r.revokedAt is null and r.expiresAt > :now")
+    List<String> findActiveFamilies(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Familias revocadas cuyos access tokens todavía podrían estar vigentes
+    @Query("select distinct r.familyId from RefreshToken r where r.revokedAt > :since")
+    List<String> findFamiliesRevokedSince(@Param("since") LocalDateTime since);
+}
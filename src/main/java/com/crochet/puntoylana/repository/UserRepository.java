@@ -3,6 +3,8 @@ package com.crochet.puntoylana.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.crochet.puntoylana.entity.User;
 
@@ -10,4 +12,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Método mágico: Spring crea la consulta SQL automáticamente por el nombre
     Optional<User> findByEmail(String email);
 
+    @Query("select u.securityEpoch from User u where u.id = :id")
+    Optional<Integer> findSecurityEpochById(@Param("id") Long id);
+
 }
@@ -12,9 +12,11 @@ import com.crochet.puntoylana.dto.RegisterRequest;
 import com.crochet.puntoylana.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -24,20 +26,36 @@ import java.util.Map;
 public class AuthenticationService {
 
     private final UserRepository repository;
+    private final UserLookupService userLookupService;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Crear token con claims del rol
      */
-    private String generateTokenWithRole(User user) {
+    private String generateTokenWithRole(User user, String familyId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", user.getRole().name()); // ej: ROLE_ADMIN o ROLE_USER
         claims.put("firstName", user.getFirstName());
+        claims.put("uid", user.getId());
+        claims.put("epoch", user.getSecurityEpoch());
+        claims.put("fam", familyId); // Sesión (familia de refresh tokens) a la que pertenece
         return jwtService.generateToken(claims, user);
     }
 
+    /**
+     * Par access + refresh token de una sesión
+     */
+    private AuthenticationResponse tokens(RefreshTokenService.Issued refresh) {
+        return AuthenticationResponse.builder()
+                .token(generateTokenWithRole(refresh.user(), refresh.familyId()))
+                .refreshToken(refresh.token())
+                .expiresIn(jwtService.getExpirationSeconds())
+                .build();
+    }
+
     public AuthenticationResponse register(RegisterRequest request) {
         var user = User.builder()
                 .firstName(request.getFirstname())
@@ -48,18 +66,25 @@ public class AuthenticationService {
                 .build();
 
         repository.save(user);
-        var jwtToken = generateTokenWithRole(user);
-        return AuthenticationResponse.builder().token(jwtToken).build();
+        return tokens(refreshTokenService.issue(user));
     }
 
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()));
-        var user = repository.findByEmail(request.getEmail()).orElseThrow();
-        var jwtToken = generateTokenWithRole(user);
-        return AuthenticationResponse.builder().token(jwtToken).build();
+        try {
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getEmail(),
+                            request.getPassword()));
+        } catch (InternalAuthenticationServiceException e) {
+            // El pool de BCrypt lleno llega envuelto por Spring Security: devolver el 503 original
+            if (e.getCause() instanceof ResponseStatusException busy) {
+                throw busy;
+            }
+            throw e;
+        }
+        // Recién cargado por el AuthenticationManager: sale de la caché
+        var user = userLookupService.findByEmail(request.getEmail()).orElseThrow();
+        return tokens(refreshTokenService.issue(user));
     }
 
     /**
@@ -84,7 +109,20 @@ public class AuthenticationService {
                 .build();
 
         repository.save(user);
-        var jwtToken = generateTokenWithRole(user);
-        return AuthenticationResponse.builder().token(jwtToken).build();
+        return tokens(refreshTokenService.issue(user));
+    }
+
+    /**
+     * Rota el refresh token y entrega un access token nuevo con el rol actual
+     */
+    public AuthenticationResponse refresh(String refreshToken) {
+        return tokens(refreshTokenService.rotate(refreshToken));
+    }
+
+    /**
+     * Cierra la sesión: sus access tokens dejan de valer de inmediato
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
     }
-}
\ No newline at end of file
+}
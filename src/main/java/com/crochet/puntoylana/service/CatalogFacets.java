@@ -0,0 +1,324 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.CatalogBrowseResult;
+import com.crochet.puntoylana.dto.ProductView;
+import com.crochet.puntoylana.entity.Category;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filtros combinados y conteos por faceta del catálogo, en memoria.
+ *
+ * Cada producto del {@link CatalogSnapshot} recibe un ordinal (su posición en
+ * el snapshot) y cada valor de faceta es un bitmap sobre esos ordinales:
+ * categoría, rango de precio, disponible y digital/físico. Filtrar es hacer
+ * AND/OR de bitmaps, y los órdenes (precio, más nuevos) están precalculados,
+ * así que cualquier combinación de filtros sale en una sola pasada, sin SQL.
+ *
+ * El índice se rearma solo cuando cambia el snapshot.
+ */
+@Component
+public class CatalogFacets {
+
+    // Patrones y cursos se entregan por link: son productos digitales
+    private static final Set<Category> DIGITAL_CATEGORIES = EnumSet.of(Category.PATTERN, Category.COURSE);
+
+    private final CatalogSnapshot catalogSnapshot;
+    private final BigDecimal[] priceBounds;
+
+    private volatile FacetIndex index;
+
+    /**
+     * Filtros y página pedidos. Los valores null o vacíos no filtran.
+     * Un valor desconocido (tipo, rango, orden) o una página negativa lanzan
+     * {@link IllegalArgumentException} con el motivo.
+     *
+     * @param priceBuckets rangos tal como los devuelve la faceta "price" (ej: "0-20000")
+     * @param type "digital" o "physical"
+     * @param sort "newest" (default), "price" o "price_desc"
+     */
+    public record Query(
+            Set<Category> categories,
+            Set<String> priceBuckets,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            boolean inStockOnly,
+            String type,
+            String sort,
+            int page,
+            int size) {
+    }
+
+    public CatalogFacets(
+            CatalogSnapshot catalogSnapshot,
+            @Value("${app.catalog.price-buckets:20000,50000,100000}") String priceBuckets) {
+        this.catalogSnapshot = catalogSnapshot;
+        this.priceBounds = Arrays.stream(priceBuckets.split(","))
+                .map(String::trim)
+                .map(BigDecimal::new)
+                .sorted()
+                .toArray(BigDecimal[]::new);
+    }
+
+    public CatalogBrowseResult browse(Query query) {
+        return index().browse(query);
+    }
+
+    private FacetIndex index() {
+        CatalogSnapshot.State state = catalogSnapshot.current();
+        FacetIndex current = index;
+        if (current == null || current.state != state) {
+            current = new FacetIndex(state, priceBounds);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Bitmaps y órdenes de un snapshot. Inmutable una vez construido.
+     */
+    private static final class FacetIndex {
+
+        private final CatalogSnapshot.State state;
+        private final ProductView[] products;
+        private final BitSet all;
+        private final Map<Category, BitSet> byCategory = new EnumMap<>(Category.class);
+        private final String[] bucketLabels;
+        private final BitSet[] byPriceBucket;
+        private final BitSet inStock = new BitSet();
+        private final BitSet digital = new BitSet();
+        private final BitSet physical = new BitSet();
+
+        // Ordinales ordenados por precio ascendente (sin precio al final) y por id descendente
+        private final int[] byPrice;
+        private final int[] byPriceDesc; // Aparte de byPrice: los sin precio también van al final
+        private final BigDecimal[] sortedPrices;
+        private final int[] newest;
+
+        FacetIndex(CatalogSnapshot.State state, BigDecimal[] bounds) {
+            this.state = state;
+            this.products = state.products().toArray(ProductView[]::new);
+            int n = products.length;
+            this.all = new BitSet(n);
+            all.set(0, n);
+
+            for (Category category : Category.values()) {
+                byCategory.put(category, new BitSet(n));
+            }
+            this.bucketLabels = new String[bounds.length + 1];
+            this.byPriceBucket = new BitSet[bounds.length + 1];
+            for (int b = 0; b <= bounds.length; b++) {
+                String from = b == 0 ? "0" : bounds[b - 1].toPlainString();
+                bucketLabels[b] = b == bounds.length ? from + "+" : from + "-" + bounds[b].toPlainString();
+                byPriceBucket[b] = new BitSet(n);
+            }
+
+            for (int i = 0; i < n; i++) {
+                ProductView p = products[i];
+                if (p.category() != null) {
+                    byCategory.get(p.category()).set(i);
+                }
+                if (p.price() != null) {
+                    byPriceBucket[bucketOf(p.price(), bounds)].set(i);
+                }
+                // Sin stock definido = digital/ilimitado
+                if (p.stock() == null || p.stock() > 0) {
+                    inStock.set(i);
+                }
+                if (DIGITAL_CATEGORIES.contains(p.category()) || p.digitalUrl() != null) {
+                    digital.set(i);
+                } else {
+                    physical.set(i);
+                }
+            }
+
+            Integer[] ordinals = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                ordinals[i] = i;
+            }
+            Arrays.sort(ordinals, Comparator.comparing((Integer i) -> products[i].price(),
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            this.byPrice = Arrays.stream(ordinals).mapToInt(Integer::intValue).toArray();
+            this.sortedPrices = Arrays.stream(byPrice)
+                    .mapToObj(i -> products[i].price())
+                    .filter(price -> price != null)
+                    .toArray(BigDecimal[]::new);
+
+            Arrays.sort(ordinals, Comparator.comparing((Integer i) -> products[i].price(),
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            this.byPriceDesc = Arrays.stream(ordinals).mapToInt(Integer::intValue).toArray();
+
+            Arrays.sort(ordinals, Comparator.comparing((Integer i) -> products[i].id()).reversed());
+            this.newest = Arrays.stream(ordinals).mapToInt(Integer::intValue).toArray();
+        }
+
+        CatalogBrowseResult browse(Query query) {
+            if (query.page() < 0) {
+                throw new IllegalArgumentException("page no puede ser negativo: " + query.page());
+            }
+            int[] order = order(query.sort());
+            BitSet categoryFilter = categoryFilter(query.categories());
+            BitSet priceFilter = priceFilter(query);
+            BitSet stockFilter = query.inStockOnly() ? inStock : all;
+            BitSet typeFilter = typeFilter(query.type());
+
+            BitSet result = and(categoryFilter, priceFilter, stockFilter, typeFilter);
+
+            // Cada faceta se cuenta con los demás filtros, así el usuario ve qué obtendría al cambiarla
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            BitSet base = and(priceFilter, stockFilter, typeFilter);
+            Map<String, Integer> categories = new LinkedHashMap<>();
+            byCategory.forEach((category, bits) -> categories.put(category.name(), countAnd(base, bits)));
+            facets.put("category", categories);
+
+            BitSet priceBase = and(categoryFilter, stockFilter, typeFilter);
+            Map<String, Integer> prices = new LinkedHashMap<>();
+            for (int b = 0; b < byPriceBucket.length; b++) {
+                prices.put(bucketLabels[b], countAnd(priceBase, byPriceBucket[b]));
+            }
+            facets.put("price", prices);
+
+            BitSet typeBase = and(categoryFilter, priceFilter, stockFilter);
+            facets.put("type", Map.of(
+                    "digital", countAnd(typeBase, digital),
+                    "physical", countAnd(typeBase, physical)));
+
+            BitSet stockBase = and(categoryFilter, priceFilter, typeFilter);
+            facets.put("availability", Map.of("inStock", countAnd(stockBase, inStock)));
+
+            int size = Math.clamp(query.size(), 1, 100);
+            return new CatalogBrowseResult(page(result, order, query.page(), size),
+                    result.cardinality(), query.page(), size, facets);
+        }
+
+        private int[] order(String sort) {
+            if (sort == null || sort.isBlank() || "newest".equalsIgnoreCase(sort)) {
+                return newest;
+            }
+            if ("price".equalsIgnoreCase(sort)) {
+                return byPrice;
+            }
+            if ("price_desc".equalsIgnoreCase(sort)) {
+                return byPriceDesc;
+            }
+            throw new IllegalArgumentException("sort debe ser 'newest', 'price' o 'price_desc'");
+        }
+
+        private List<ProductView> page(BitSet result, int[] order, int page, int size) {
+            // En long: page * size no entra en un int para páginas muy altas
+            long skip = (long) page * size;
+            if (skip >= result.cardinality()) {
+                return List.of();
+            }
+            List<ProductView> items = new ArrayList<>(size);
+            for (int k = 0; k < order.length && items.size() < size; k++) {
+                int ordinal = order[k];
+                if (result.get(ordinal) && skip-- <= 0) {
+                    items.add(products[ordinal]);
+                }
+            }
+            return items;
+        }
+
+        private BitSet categoryFilter(Set<Category> categories) {
+            if (categories == null || categories.isEmpty()) {
+                return all;
+            }
+            BitSet bits = new BitSet(products.length);
+            categories.forEach(category -> bits.or(byCategory.get(category)));
+            return bits;
+        }
+
+        private BitSet priceFilter(Query query) {
+            BitSet bits = all;
+            if (query.priceBuckets() != null && !query.priceBuckets().isEmpty()) {
+                List<String> labels = Arrays.asList(bucketLabels);
+                bits = new BitSet(products.length);
+                for (String bucket : query.priceBuckets()) {
+                    int b = labels.indexOf(bucket);
+                    if (b < 0) {
+                        throw new IllegalArgumentException("Rango de precio no válido: " + bucket
+                                + " (disponibles: " + String.join(", ", labels) + ")");
+                    }
+                    bits.or(byPriceBucket[b]);
+                }
+            }
+            if (query.minPrice() != null || query.maxPrice() != null) {
+                // Rango contiguo dentro del orden por precio
+                int from = query.minPrice() == null ? 0 : lowerBound(query.minPrice(), false);
+                int to = query.maxPrice() == null ? sortedPrices.length : lowerBound(query.maxPrice(), true);
+                BitSet range = new BitSet(products.length);
+                for (int k = from; k < to; k++) {
+                    range.set(byPrice[k]);
+                }
+                bits = and(bits, range);
+            }
+            return bits;
+        }
+
+        private BitSet typeFilter(String type) {
+            if (type == null || type.isBlank()) {
+                return all;
+            }
+            if ("digital".equalsIgnoreCase(type)) {
+                return digital;
+            }
+            if ("physical".equalsIgnoreCase(type)) {
+                return physical;
+            }
+            throw new IllegalArgumentException("type debe ser 'digital' o 'physical'");
+        }
+
+        // Primer índice con precio >= value (o > value si inclusive=true)
+        private int lowerBound(BigDecimal value, boolean inclusive) {
+            int lo = 0;
+            int hi = sortedPrices.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = sortedPrices[mid].compareTo(value);
+                if (cmp < 0 || (inclusive && cmp == 0)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private BitSet and(BitSet... sets) {
+            BitSet result = (BitSet) all.clone();
+            for (BitSet set : sets) {
+                if (set != all) {
+                    result.and(set);
+                }
+            }
+            return result;
+        }
+
+        private static int countAnd(BitSet a, BitSet b) {
+            BitSet copy = (BitSet) a.clone();
+            copy.and(b);
+            return copy.cardinality();
+        }
+
+        private static int bucketOf(BigDecimal price, BigDecimal[] bounds) {
+            int b = 0;
+            while (b < bounds.length && price.compareTo(bounds[b]) >= 0) {
+                b++;
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.ProductView;
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot inmutable y versionado del catálogo público.
+ *
+ * Guarda las vistas de los productos junto con las respuestas JSON ya
+ * serializadas (UTF-8 y gzip) del listado completo, de cada categoría y de
+ * cada producto. Los endpoints públicos escriben esos bytes directamente, sin
+ * tocar la base de datos ni volver a serializar.
+ *
+ * Se reconstruye completo después de cada commit de {@link ProductService}
+ * y se publica con una sola escritura volatile, así los lectores nunca ven un
+ * estado a medias.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogSnapshot {
+
+    // Igual que server.compression.min-response-size: por debajo no vale la pena comprimir
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    // "[]" nunca cambia, así que su ETag es fijo
+    public static final Body EMPTY_LIST = new Body("[]".getBytes(StandardCharsets.UTF_8), null, "\"empty\"");
+
+    private final ProductRepository repository;
+    private final JsonMapper jsonMapper;
+    private final CatalogVersion catalogVersion;
+
+    private volatile State state;
+
+    /**
+     * Respuesta JSON pre-serializada. {@code gzip} es null si el cuerpo es muy pequeño.
+     * {@code etag} es fuerte y corresponde a la variante sin comprimir.
+     */
+    public record Body(byte[] json, byte[] gzip, String etag) {
+
+        // Con Content-Encoding distinto, un ETag fuerte debe ser distinto
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+
+    /**
+     * Estado publicado del catálogo. Todas las colecciones son inmutables.
+     *
+     * @param tag hash del contenido del listado completo: igual en todas las
+     *            instancias y entre reinicios mientras el catálogo no cambie
+     */
+    public record State(
+            long version,
+            String tag,
+            List<ProductView> products,
+            Map<Long, ProductView> byId,
+            Body all,
+            Map<Category, Body> byCategory,
+            Map<Long, Body> byProduct) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            current();
+        } catch (RuntimeException e) {
+            // Si la BD no está lista, el primer request lo construirá
+            log.warn("⚠️ No se pudo precargar el catálogo: {}", e.getMessage());
+        }
+    }
+
+    // Primero que los demás oyentes: varios se arman a partir de este snapshot
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        refresh();
+    }
+
+    public State current() {
+        State current = state;
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    public Optional<ProductView> findById(Long id) {
+        return Optional.ofNullable(current().byId().get(id));
+    }
+
+    /**
+     * Recarga el catálogo desde la BD y publica un nuevo snapshot.
+     * Sincronizado para que la última reconstrucción siempre vea el último commit.
+     */
+    public synchronized State refresh() {
+        long start = System.nanoTime();
+
+        // Leer la versión ANTES de la BD: los datos leídos son al menos tan nuevos como ella
+        // (la versión solo ordena reconstrucciones; los ETag salen del contenido)
+        long version = catalogVersion.current();
+
+        List<ProductView> products = repository.findAll().stream()
+                .map(ProductView::from)
+                .toList();
+
+        Map<Long, ProductView> byId = new HashMap<>();
+        Map<Long, Body> byProduct = new HashMap<>();
+        Map<Category, List<ProductView>> grouped = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            grouped.put(category, new ArrayList<>());
+        }
+        for (ProductView product : products) {
+            byId.put(product.id(), product);
+            byProduct.put(product.id(), serialize(product));
+            if (product.category() != null) {
+                grouped.get(product.category()).add(product);
+            }
+        }
+
+        Map<Category, Body> byCategory = new EnumMap<>(Category.class);
+        grouped.forEach((category, list) -> byCategory.put(category, serialize(list)));
+
+        Body all = serialize(products);
+        State next = new State(
+                version,
+                contentTag(all.json()),
+                products,
+                Collections.unmodifiableMap(byId),
+                all,
+                Collections.unmodifiableMap(byCategory),
+                Collections.unmodifiableMap(byProduct));
+        state = next;
+
+        log.info("📚 Catálogo v{} ({}) reconstruido: {} productos en {} ms",
+                next.version(), next.tag(), products.size(), (System.nanoTime() - start) / 1_000_000);
+        return next;
+    }
+
+    // El ETag sale del contenido: un contador local se repetiría entre reinicios e instancias
+    private Body serialize(Object value) {
+        byte[] json = jsonMapper.writeValueAsBytes(value);
+        return new Body(json, json.length >= GZIP_MIN_BYTES ? gzip(json) : null, "\"" + contentTag(json) + "\"");
+    }
+
+    /**
+     * Hash corto (SHA-256, 96 bits en Base64 URL-safe) de los bytes serializados.
+     */
+    public static String contentTag(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todo JRE trae SHA-256
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
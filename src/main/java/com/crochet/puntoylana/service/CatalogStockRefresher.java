@@ -0,0 +1,61 @@
+package com.crochet.puntoylana.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lleva las ventas al catálogo en memoria.
+ *
+ * Los pedidos descuentan stock directo en la BD, así que sin esto el snapshot,
+ * las facetas ("con stock") y el buscador seguirían mostrando el stock previo a
+ * las ventas. Reconstruir el snapshot por cada pedido sería caro en una
+ * temporada alta: los productos tocados se juntan y cada {@code interval} se
+ * sube la versión del catálogo y se reconstruye una sola vez.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogStockRefresher {
+
+    private final CatalogVersion catalogVersion;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ProductSearchIndex searchIndex;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    // Después del commit del pedido (o enseguida, fuera de una transacción)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        pending.addAll(event.productIds());
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.stock-refresh-interval:2s}")
+    public void refresh() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Lo que llegue mientras tanto queda para la próxima pasada
+        Set<Long> changed = new HashSet<>();
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+
+        try {
+            catalogVersion.bump();
+            CatalogSnapshot.State state = catalogSnapshot.refresh();
+            searchIndex.refreshProducts(changed, state);
+        } catch (RuntimeException e) {
+            pending.addAll(changed); // Se reintenta en la próxima pasada
+            log.warn("⚠️ No se pudo refrescar el stock del catálogo: {}", e.getMessage());
+        }
+    }
+}
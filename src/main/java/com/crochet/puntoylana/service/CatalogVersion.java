@@ -0,0 +1,26 @@
+package com.crochet.puntoylana.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión del catálogo. {@link ProductService} la incrementa después de cada
+ * mutación de productos; ordena las reconstrucciones del {@link CatalogSnapshot}.
+ *
+ * Es un contador de esta instancia (arranca en 1 en cada JVM), así que no sirve
+ * para ETags: esos salen del hash del contenido ({@link CatalogSnapshot#contentTag}).
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(1);
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+}
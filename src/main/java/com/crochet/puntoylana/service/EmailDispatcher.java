@@ -0,0 +1,225 @@
+package com.crochet.puntoylana.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Vacía {@link EmailOutbox} en segundo plano.
+ *
+ * Cada pasada toma un lote (sin dejar una transacción abierta), lo manda por
+ * una sola conexión SMTP y anota el resultado de cada email. Un fallo se
+ * reintenta con backoff exponencial; después de {@code maxAttempts} el email
+ * queda en DEAD. Ni el checkout ni la BD esperan al servidor de correo.
+ *
+ * Una pasada manda como mucho {@code maxBatchesPerPass} lotes o dura
+ * {@code maxPassTime}; lo que quede sale en la siguiente. Así una cola grande
+ * o un SMTP lento no retienen el scheduler, que comparte con las demás tareas
+ * periódicas (spring.task.scheduling.pool.size).
+ */
+@Slf4j
+@Component
+public class EmailDispatcher {
+
+    private final EmailOutbox outbox;
+    private final JavaMailSender mailSender; // null = sin SMTP configurado, se simula el envío
+
+    @Value("${app.mail.from:noreply@puntoylana.com}")
+    private String fromEmail;
+
+    @Value("${app.mail.name:Punto y Lana}")
+    private String fromName;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    // Tiempo que un lote queda reservado para esta instancia mientras se envía
+    @Value("${app.mail.outbox.lease:5m}")
+    private Duration lease;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.backoff:30s}")
+    private Duration backoff;
+
+    @Value("${app.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    @Value("${app.mail.outbox.max-batches-per-pass:10}")
+    private int maxBatchesPerPass;
+
+    @Value("${app.mail.outbox.max-pass-time:10s}")
+    private Duration maxPassTime;
+
+    @Value("${app.mail.outbox.retention:7d}")
+    private Duration retention;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+
+    @Autowired
+    public EmailDispatcher(EmailOutbox outbox, @Autowired(required = false) JavaMailSender mailSender) {
+        this.outbox = outbox;
+        this.mailSender = mailSender;
+    }
+
+    /**
+     * Envía lotes hasta vaciar lo pendiente, hasta que un lote falle entero o
+     * hasta agotar el tope de lotes o de tiempo de la pasada.
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval:1s}")
+    public void dispatch() {
+        long deadline = System.nanoTime() + maxPassTime.toNanos();
+        try {
+            List<EmailOutbox.Message> batch;
+            int passBatches = 0;
+            do {
+                batch = outbox.claim(batchSize, lease);
+                if (batch.isEmpty()) {
+                    return;
+                }
+            } while (send(batch) && batch.size() == batchSize
+                    && ++passBatches < maxBatchesPerPass && System.nanoTime() < deadline);
+        } catch (RuntimeException e) {
+            // Lo tomado y no anotado vuelve a estar disponible al vencer el alquiler
+            log.warn("⚠️ Outbox de emails: error en el despacho: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.purge-interval:1h}")
+    public void purge() {
+        int deleted = outbox.purgeSent(retention);
+        if (deleted > 0) {
+            log.debug("🧹 Outbox de emails: {} enviados antiguos borrados", deleted);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long sentCount = sent.sum();
+        long nanos = sendNanos.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sentCount);
+        stats.put("failedAttempts", failed.sum());
+        stats.put("dead", dead.sum());
+        stats.put("batches", batches.sum());
+        stats.put("lastBatchMs", lastBatchMillis.get());
+        stats.put("emailsPerSecond", nanos > 0 ? sentCount * 1_000_000_000.0 / nanos : 0.0);
+        stats.put("outbox", outbox.countByStatus());
+        return stats;
+    }
+
+    // Devuelve true si salió al menos un email (si no, no insistir en esta pasada)
+    private boolean send(List<EmailOutbox.Message> batch) {
+        long start = System.nanoTime();
+        List<Long> delivered = new ArrayList<>();
+        List<EmailOutbox.Failure> failures = new ArrayList<>();
+
+        if (mailSender == null) {
+            for (EmailOutbox.Message message : batch) {
+                log.info("📧 [SIMULADO] Email a: {} | Asunto: {}", message.recipient(), message.subject());
+                delivered.add(message.id());
+            }
+        } else {
+            Map<MimeMessage, EmailOutbox.Message> pending = new IdentityHashMap<>();
+            for (EmailOutbox.Message message : batch) {
+                try {
+                    pending.put(toMime(message), message);
+                } catch (MessagingException | UnsupportedEncodingException e) {
+                    // Dirección o contenido inválido: reintentar no lo arregla
+                    failures.add(new EmailOutbox.Failure(message.id(), message.attempts() + 1, null, e.getMessage()));
+                }
+            }
+
+            Map<Object, Exception> errors = Map.of();
+            try {
+                // Una sola conexión SMTP para todo el lote
+                mailSender.send(pending.keySet().toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                errors = e.getFailedMessages();
+            } catch (MailException e) {
+                Map<Object, Exception> all = new IdentityHashMap<>();
+                pending.keySet().forEach(mime -> all.put(mime, e));
+                errors = all;
+            }
+
+            for (Map.Entry<MimeMessage, EmailOutbox.Message> entry : pending.entrySet()) {
+                Exception error = errors.get(entry.getKey());
+                if (error == null) {
+                    delivered.add(entry.getValue().id());
+                } else {
+                    failures.add(retryOrDead(entry.getValue(), error));
+                }
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            outbox.markSent(delivered);
+        }
+        if (!failures.isEmpty()) {
+            outbox.markFailed(failures);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        batches.increment();
+        sent.add(delivered.size());
+        failed.add(failures.size());
+        dead.add(failures.stream().filter(f -> f.nextAttemptAt() == null).count());
+        sendNanos.add(elapsed);
+        lastBatchMillis.set(elapsed / 1_000_000);
+        if (!failures.isEmpty()) {
+            log.warn("⚠️ Outbox de emails: {} enviados, {} fallidos", delivered.size(), failures.size());
+        } else {
+            log.debug("📧 Outbox de emails: lote de {} enviado en {} ms", delivered.size(), elapsed / 1_000_000);
+        }
+        return !delivered.isEmpty();
+    }
+
+    private EmailOutbox.Failure retryOrDead(EmailOutbox.Message message, Exception error) {
+        int attempts = message.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.error("❌ Email a {} descartado después de {} intentos: {}",
+                    message.recipient(), attempts, error.getMessage());
+            return new EmailOutbox.Failure(message.id(), attempts, null, error.getMessage());
+        }
+        // backoff * 2^(intentos-1), con tope y un poco de azar para no reintentar todos juntos
+        long delay = Math.min(backoff.toMillis() << Math.min(attempts - 1, 20), maxBackoff.toMillis());
+        delay += ThreadLocalRandom.current().nextLong(delay / 10 + 1);
+        return new EmailOutbox.Failure(message.id(), attempts,
+                LocalDateTime.now().plus(Duration.ofMillis(delay)), error.getMessage());
+    }
+
+    private MimeMessage toMime(EmailOutbox.Message message) throws MessagingException, UnsupportedEncodingException {
+        MimeMessage mime = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mime, true, "UTF-8");
+        helper.setFrom(fromEmail, fromName);
+        helper.setTo(message.recipient());
+        helper.setSubject(message.subject());
+        helper.setText(message.html(), true);
+        return mime;
+    }
+}
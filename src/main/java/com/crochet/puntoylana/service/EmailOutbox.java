@@ -0,0 +1,131 @@
+package com.crochet.puntoylana.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tabla email_outbox: los emails se encolan en la transacción de quien los pide
+ * (si el pedido se revierte, el email tampoco sale) y {@link EmailDispatcher}
+ * los toma en lotes.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmailOutbox {
+
+    // Toma un lote y lo "alquila" por un rato: otra instancia no lo ve hasta que venza
+    private static final String CLAIM_SQL = """
+            UPDATE email_outbox SET next_attempt_at = ?
+            WHERE id IN (
+                SELECT id FROM email_outbox
+                WHERE status = 'PENDING' AND next_attempt_at <= ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, recipient, subject, html, attempts
+            """;
+
+    private static final String ENQUEUE_SQL = "INSERT INTO email_outbox (recipient, subject, html) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Email tomado para enviar.
+     *
+     * @param attempts intentos fallidos anteriores
+     */
+    public record Message(long id, String recipient, String subject, String html, int attempts) {
+    }
+
+    /**
+     * Resultado fallido de un envío.
+     *
+     * @param nextAttemptAt cuándo reintentar, o null si el email queda en DEAD
+     */
+    public record Failure(long id, int attempts, LocalDateTime nextAttemptAt, String error) {
+    }
+
+    /**
+     * Email listo para encolar.
+     */
+    public record Draft(String recipient, String subject, String html) {
+    }
+
+    public void enqueue(String recipient, String subject, String html) {
+        jdbcTemplate.update(ENQUEUE_SQL, recipient, subject, html);
+    }
+
+    /**
+     * Encola varios emails en un solo batch JDBC.
+     */
+    public void enqueueAll(List<Draft> drafts) {
+        jdbcTemplate.batchUpdate(ENQUEUE_SQL, drafts.stream()
+                .map(d -> new Object[] { d.recipient(), d.subject(), d.html() })
+                .toList());
+    }
+
+    /**
+     * Toma hasta {@code limit} emails listos para enviar (sentencia única, sin transacción abierta).
+     */
+    public List<Message> claim(int limit, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new Message(rs.getLong("id"), rs.getString("recipient"), rs.getString("subject"),
+                        rs.getString("html"), rs.getInt("attempts")),
+                Timestamp.valueOf(now.plus(lease)), Timestamp.valueOf(now), limit);
+    }
+
+    public void markSent(List<Long> ids) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE email_outbox SET status = 'SENT', sent_at = now(), attempts = attempts + 1 WHERE id = ?",
+                ids.stream().map(id -> new Object[] { id }).toList());
+    }
+
+    public void markFailed(List<Failure> failures) {
+        jdbcTemplate.batchUpdate("""
+                UPDATE email_outbox
+                SET attempts = ?, status = ?, next_attempt_at = COALESCE(CAST(? AS TIMESTAMP), next_attempt_at), last_error = ?
+                WHERE id = ?
+                """,
+                failures.stream().map(f -> new Object[] {
+                        f.attempts(),
+                        f.nextAttemptAt() != null ? "PENDING" : "DEAD",
+                        f.nextAttemptAt() != null ? Timestamp.valueOf(f.nextAttemptAt()) : null,
+                        truncate(f.error()),
+                        f.id() }).toList());
+    }
+
+    public int purgeSent(Duration retention) {
+        return jdbcTemplate.update("DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+    }
+
+    /**
+     * Emails por estado (PENDING, DEAD; los SENT se purgan).
+     */
+    public Map<String, Long> countByStatus() {
+        return jdbcTemplate.query("SELECT status, COUNT(*) FROM email_outbox WHERE status <> 'SENT' GROUP BY status",
+                rs -> {
+                    Map<String, Long> counts = new TreeMap<>();
+                    while (rs.next()) {
+                        counts.put(rs.getString(1), rs.getLong(2));
+                    }
+                    return counts;
+                });
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -1,103 +1,125 @@
 package com.crochet.puntoylana.service;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import com.crochet.puntoylana.entity.Order;
+import com.crochet.puntoylana.entity.User;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Servicio para envío de emails transaccionales.
- * Si no hay configuración SMTP, los emails se loguean pero no se envían.
+ * Los emails no se mandan acá: se guardan en el outbox ({@link EmailOutbox}) dentro
+ * de la transacción de quien llama y {@link EmailDispatcher} los envía después.
+ * Si no hay configuración SMTP, el dispatcher los loguea pero no los envía.
+ *
+ * Las plantillas se compilan una vez al cargar la clase ({@link EmailTemplate});
+ * todo lo que viene del usuario (nombres, productos) sale escapado.
  */
-@Slf4j
 @Service
+@RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-    private final boolean emailEnabled;
+    // Emails por batch al encolar un anuncio masivo
+    private static final int ANNOUNCEMENT_BATCH = 500;
 
-    @Value("${app.mail.from:noreply@puntoylana.com}")
-    private String fromEmail;
+    private final EmailOutbox outbox;
 
-    @Value("${app.mail.name:Punto y Lana}")
-    private String fromName;
+    private record Welcome(String userName) {
+    }
+
+    private record Purchase(String userName, String orderNumber, List<Line> lines, BigDecimal total) {
+    }
 
-    // Constructor con inyección OPCIONAL de JavaMailSender
-    @Autowired
-    public EmailService(@Autowired(required = false) JavaMailSender mailSender) {
-        this.mailSender = mailSender;
-        this.emailEnabled = mailSender != null;
+    private record Line(String productName, int quantity, BigDecimal subtotal) {
+    }
 
-        if (!emailEnabled) {
-            log.warn("⚠️ EmailService: JavaMailSender no configurado. Los emails se simularán en desarrollo.");
-        } else {
-            log.info("✅ EmailService: Servicio de email configurado correctamente.");
+    private record PasswordReset(String userName, String resetToken) {
+    }
+
+    private record Announcement(User user, String title, List<String> paragraphs) {
+        String userName() {
+            return displayName(user);
         }
     }
 
+    /**
+     * Nombre para el saludo: el nombre de pila o, si no hay, lo que va antes de la @.
+     */
+    public static String displayName(User user) {
+        return user.getFirstName() != null ? user.getFirstName() : user.getEmail().split("@")[0];
+    }
+
     /**
      * Envía email de bienvenida al registrarse.
      */
-    @Async
     public void sendWelcomeEmail(String toEmail, String userName) {
         String subject = "¡Bienvenido/a a Punto y Lana! 🧶";
-        String html = buildWelcomeEmail(userName);
-        sendHtmlEmail(toEmail, subject, html);
+        String html = WELCOME.render(new Welcome(userName));
+        outbox.enqueue(toEmail, subject, html);
     }
 
     /**
-     * Envía confirmación de compra.
+     * Envía confirmación de compra, con una línea por cada item del pedido.
      */
-    @Async
-    public void sendPurchaseConfirmation(String toEmail, String userName,
-            String orderNumber, BigDecimal total, String productName) {
+    public void sendPurchaseConfirmation(String toEmail, String userName, Order order) {
+        String orderNumber = order.getId().toString();
+        List<Line> lines = order.getItems().stream()
+                .map(item -> new Line(item.getProduct().getName(), item.getQuantity(),
+                        item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
+                .toList();
+
         String subject = "✨ ¡Compra confirmada! - Orden #" + orderNumber;
-        String html = buildPurchaseEmail(userName, orderNumber, total, productName);
-        sendHtmlEmail(toEmail, subject, html);
+        String html = PURCHASE.render(new Purchase(userName, orderNumber, lines, order.getTotalAmount()));
+        outbox.enqueue(toEmail, subject, html);
     }
 
     /**
      * Envía link de recuperación de contraseña.
      */
-    @Async
     public void sendPasswordResetEmail(String toEmail, String userName, String resetToken) {
         String subject = "🔐 Recupera tu contraseña - Punto y Lana";
-        String html = buildPasswordResetEmail(userName, resetToken);
-        sendHtmlEmail(toEmail, subject, html);
+        String html = PASSWORD_RESET.render(new PasswordReset(userName, resetToken));
+        outbox.enqueue(toEmail, subject, html);
     }
 
-    private void sendHtmlEmail(String to, String subject, String htmlContent) {
-        // Si no hay mailSender configurado, simular el envío
-        if (!emailEnabled || mailSender == null) {
-            log.info("📧 [SIMULADO] Email a: {} | Asunto: {}", to, subject);
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail, fromName);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
+    /**
+     * Encola un anuncio (novedades del catálogo, etc.) para cada usuario, todo o nada.
+     * Se renderiza con un solo buffer y se inserta por batches.
+     *
+     * @param message texto plano; una línea en blanco separa párrafos
+     * @return cantidad de emails encolados
+     */
+    @Transactional
+    public int sendAnnouncement(List<User> users, String subject, String title, String message) {
+        List<String> paragraphs = Arrays.stream(message.strip().split("\\R\\s*\\R"))
+                .map(String::strip)
+                .filter(p -> !p.isEmpty())
+                .toList();
 
-            mailSender.send(message);
-            log.info("📧 Email enviado a: {}", to);
-        } catch (MessagingException | java.io.UnsupportedEncodingException e) {
-            log.error("❌ Error enviando email a {}: {}", to, e.getMessage());
+        List<EmailOutbox.Draft> batch = new ArrayList<>(ANNOUNCEMENT_BATCH);
+        ANNOUNCEMENT.renderEach(
+                users.stream().map(user -> new Announcement(user, title, paragraphs)).toList(),
+                (announcement, html) -> {
+                    batch.add(new EmailOutbox.Draft(announcement.user().getEmail(), subject, html));
+                    if (batch.size() == ANNOUNCEMENT_BATCH) {
+                        outbox.enqueueAll(batch);
+                        batch.clear();
+                    }
+                });
+        if (!batch.isEmpty()) {
+            outbox.enqueueAll(batch);
         }
+        return users.size();
     }
 
-    private String buildWelcomeEmail(String userName) {
-        return """
+    // ==================== PLANTILLAS ====================
+
+    private static final EmailTemplate<Welcome> WELCOME = EmailTemplate.<Welcome>parse("welcome", """
                 <!DOCTYPE html>
                 <html>
                 <head>
@@ -122,7 +144,7 @@ public class EmailService {
                             <h1>¡Bienvenido/a!</h1>
                         </div>
                         <div class="content">
-                            <h2>Hola %s,</h2>
+                            <h2>Hola {{userName}},</h2>
                             <p>¡Qué emoción tenerte en nuestra comunidad de tejedores! 💖</p>
                             <p>En <strong>Punto y Lana</strong> encontrarás todo lo que necesitas para tus proyectos de crochet: lanas de alta calidad, patrones exclusivos y cursos para todos los niveles.</p>
                             <p>¿Listo/a para comenzar tu próxima creación?</p>
@@ -135,13 +157,11 @@ public class EmailService {
                     </div>
                 </body>
                 </html>
-                """
-                .formatted(userName);
-    }
+                """)
+            .text("userName", Welcome::userName)
+            .build();
 
-    private String buildPurchaseEmail(String userName, String orderNumber,
-            BigDecimal total, String productName) {
-        return """
+    private static final EmailTemplate<Purchase> PURCHASE = EmailTemplate.<Purchase>parse("purchase", """
                 <!DOCTYPE html>
                 <html>
                 <head>
@@ -158,6 +178,10 @@ public class EmailService {
                         .order-box { background: #FFF8F5; border-radius: 12px; padding: 20px; margin: 20px 0; }
                         .order-box .label { color: #A1887F; font-size: 12px; text-transform: uppercase; }
                         .order-box .value { color: #5D4037; font-size: 18px; font-weight: bold; }
+                        .lines { width: 100%; border-collapse: collapse; }
+                        .lines td { padding: 6px 0; vertical-align: top; }
+                        .lines .value { font-size: 16px; }
+                        .lines .qty, .lines .subtotal { color: #795548; white-space: nowrap; text-align: right; padding-left: 12px; }
                         .total { font-size: 24px; color: #E91E63; font-weight: bold; }
                         .button { display: inline-block; background: linear-gradient(135deg, #E91E63, #F48FB1); color: white; padding: 14px 30px; text-decoration: none; border-radius: 30px; font-weight: bold; margin-top: 20px; }
                         .footer { background: #FFF8F5; padding: 20px; text-align: center; font-size: 12px; color: #A1887F; }
@@ -170,22 +194,30 @@ public class EmailService {
                             <h1>¡Compra Confirmada!</h1>
                         </div>
                         <div class="content">
-                            <h2>Gracias, %s</h2>
+                            <h2>Gracias, {{userName}}</h2>
                             <p>Tu pedido ha sido procesado exitosamente. ¡Pronto recibirás tus productos!</p>
 
                             <div class="order-box">
                                 <p class="label">Número de orden</p>
-                                <p class="value">#%s</p>
+                                <p class="value">#{{orderNumber}}</p>
                             </div>
 
                             <div class="order-box">
-                                <p class="label">Producto</p>
-                                <p class="value">%s</p>
+                                <p class="label">Productos</p>
+                                <table class="lines">
+                                    {{#lines}}
+                                    <tr>
+                                        <td class="value">{{productName}}</td>
+                                        <td class="qty">x{{quantity}}</td>
+                                        <td class="subtotal">${{subtotal}}</td>
+                                    </tr>
+                                    {{/lines}}
+                                </table>
                             </div>
 
                             <div class="order-box">
                                 <p class="label">Total pagado</p>
-                                <p class="total">$%s COP</p>
+                                <p class="total">${{total}} COP</p>
                             </div>
 
                             <a href="https://puntoylana.com/perfil" class="button">Ver Mi Pedido</a>
@@ -197,13 +229,17 @@ public class EmailService {
                     </div>
                 </body>
                 </html>
-                """
-                .formatted(userName, orderNumber, productName, total.toString());
-    }
+                """)
+            .text("userName", Purchase::userName)
+            .text("orderNumber", Purchase::orderNumber)
+            .each("lines", Purchase::lines, row -> row
+                    .text("productName", Line::productName)
+                    .text("quantity", Line::quantity)
+                    .text("subtotal", line -> line.subtotal().toPlainString()))
+            .text("total", purchase -> purchase.total().toPlainString())
+            .build();
 
-    private String buildPasswordResetEmail(String userName, String resetToken) {
-        String resetUrl = "https://puntoylana.com/reset-password?token=" + resetToken;
-        return """
+    private static final EmailTemplate<PasswordReset> PASSWORD_RESET = EmailTemplate.<PasswordReset>parse("password-reset", """
                 <!DOCTYPE html>
                 <html>
                 <head>
@@ -229,11 +265,11 @@ public class EmailService {
                             <h1>Recupera tu contraseña</h1>
                         </div>
                         <div class="content">
-                            <h2>Hola %s,</h2>
+                            <h2>Hola {{userName}},</h2>
                             <p>Recibimos una solicitud para restablecer la contraseña de tu cuenta.</p>
                             <p>Haz clic en el siguiente botón para crear una nueva contraseña:</p>
 
-                            <a href="%s" class="button">Restablecer Contraseña</a>
+                            <a href="https://puntoylana.com/reset-password?token={{resetToken}}" class="button">Restablecer Contraseña</a>
 
                             <div class="warning">
                                 ⚠️ Este enlace expirará en 1 hora. Si no solicitaste este cambio, ignora este correo.
@@ -246,7 +282,53 @@ public class EmailService {
                     </div>
                 </body>
                 </html>
-                """
-                .formatted(userName, resetUrl);
-    }
+                """)
+            .text("userName", PasswordReset::userName)
+            .text("resetToken", PasswordReset::resetToken)
+            .build();
+
+    private static final EmailTemplate<Announcement> ANNOUNCEMENT = EmailTemplate.<Announcement>parse("announcement", """
+                <!DOCTYPE html>
+                <html>
+                <head>
+                    <meta charset="UTF-8">
+                    <style>
+                        body { font-family: 'Segoe UI', Arial, sans-serif; background-color: #FFF8F5; margin: 0; padding: 20px; }
+                        .container { max-width: 600px; margin: 0 auto; background: white; border-radius: 16px; overflow: hidden; box-shadow: 0 4px 20px rgba(0,0,0,0.1); }
+                        .header { background: linear-gradient(135deg, #E91E63, #F48FB1); padding: 40px 20px; text-align: center; }
+                        .header h1 { color: white; margin: 0; font-size: 28px; }
+                        .header .emoji { font-size: 60px; display: block; margin-bottom: 10px; }
+                        .content { padding: 40px 30px; }
+                        .content h2 { color: #5D4037; margin-top: 0; }
+                        .content p { color: #795548; line-height: 1.6; }
+                        .button { display: inline-block; background: linear-gradient(135deg, #E91E63, #F48FB1); color: white; padding: 14px 30px; text-decoration: none; border-radius: 30px; font-weight: bold; margin-top: 20px; }
+                        .footer { background: #FFF8F5; padding: 20px; text-align: center; font-size: 12px; color: #A1887F; }
+                    </style>
+                </head>
+                <body>
+                    <div class="container">
+                        <div class="header">
+                            <span class="emoji">🧶</span>
+                            <h1>{{title}}</h1>
+                        </div>
+                        <div class="content">
+                            <h2>Hola {{userName}},</h2>
+                            {{#paragraphs}}
+                            <p>{{text}}</p>
+                            {{/paragraphs}}
+                            <a href="https://puntoylana.com/catalogo" class="button">Ver Catálogo</a>
+                        </div>
+                        <div class="footer">
+                            <p>Recibes este correo porque tienes una cuenta en Punto y Lana.</p>
+                            <p>© 2026 Punto y Lana. Todos los derechos reservados.</p>
+                        </div>
+                    </div>
+                </body>
+                </html>
+                """)
+            .text("title", Announcement::title)
+            .text("userName", Announcement::userName)
+            .each("paragraphs", Announcement::paragraphs, row -> row
+                    .text("text", paragraph -> paragraph))
+            .build();
 }
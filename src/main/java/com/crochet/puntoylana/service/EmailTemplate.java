@@ -0,0 +1,199 @@
+package com.crochet.puntoylana.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Plantilla HTML compilada una sola vez: el texto fijo queda partido en segmentos
+ * y cada {@code {{nombre}}} es un hueco ligado a un getter del modelo {@code T}.
+ * Renderizar es concatenar segmentos y valores escapados; no se vuelve a parsear nada.
+ *
+ * Sintaxis:
+ * <ul>
+ * <li>{@code {{nombre}}}: texto, siempre escapado para HTML.</li>
+ * <li>{@code {{#lista}}...{{/lista}}}: el bloque se repite por cada elemento, con su propio modelo.</li>
+ * </ul>
+ *
+ * Un hueco sin valor ligado (o un valor ligado a un hueco que no existe) falla
+ * en {@link Builder#build()}, o sea al arrancar, no al mandar el primer email.
+ */
+public final class EmailTemplate<T> {
+
+    private final String name;
+    private final String[] segments; // segments[i] va antes de slots[i]; el último cierra
+    private final List<Slot<T>> slots;
+    private final int staticLength;
+
+    @FunctionalInterface
+    private interface Slot<T> {
+        void write(T model, StringBuilder out);
+    }
+
+    private EmailTemplate(String name, List<String> segments, List<Slot<T>> slots) {
+        this.name = name;
+        this.segments = segments.toArray(String[]::new);
+        this.slots = List.copyOf(slots);
+        this.staticLength = segments.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Parsea la plantilla; los huecos se ligan con el builder.
+     *
+     * @throws IllegalArgumentException si hay un {{ sin cerrar o un bloque sin {{/...}}
+     */
+    public static <T> Builder<T> parse(String name, String source) {
+        return new Builder<>(name, source);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String render(T model) {
+        StringBuilder out = new StringBuilder(staticLength + 256);
+        renderTo(model, out);
+        return out.toString();
+    }
+
+    /**
+     * Renderiza muchos modelos reusando un solo buffer (envíos masivos).
+     */
+    public void renderEach(Iterable<? extends T> models, BiConsumer<? super T, String> sink) {
+        StringBuilder out = new StringBuilder(staticLength + 256);
+        for (T model : models) {
+            out.setLength(0);
+            renderTo(model, out);
+            sink.accept(model, out.toString());
+        }
+    }
+
+    void renderTo(T model, StringBuilder out) {
+        for (int i = 0; i < slots.size(); i++) {
+            out.append(segments[i]);
+            slots.get(i).write(model, out);
+        }
+        out.append(segments[segments.length - 1]);
+    }
+
+    /**
+     * Agrega {@code value} escapado para texto o atributo HTML.
+     */
+    static void escapeHtml(CharSequence value, StringBuilder out) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+
+    public static final class Builder<T> {
+
+        private static final String OPEN = "{{";
+        private static final String CLOSE = "}}";
+
+        private final String name;
+        private final List<String> segments = new ArrayList<>();
+        private final List<String> slotNames = new ArrayList<>(); // "#x" para bloques
+        private final Map<String, String> sections = new HashMap<>();
+        private final Map<String, Slot<T>> bound = new HashMap<>();
+
+        private Builder(String name, String source) {
+            this.name = name;
+            int pos = 0;
+            while (true) {
+                int open = source.indexOf(OPEN, pos);
+                if (open < 0) {
+                    segments.add(source.substring(pos));
+                    return;
+                }
+                int close = source.indexOf(CLOSE, open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Plantilla " + name + ": {{ sin cerrar en la posición " + open);
+                }
+                segments.add(source.substring(pos, open));
+                String tag = source.substring(open + OPEN.length(), close).trim();
+                pos = close + CLOSE.length();
+
+                if (tag.startsWith("#")) {
+                    String end = OPEN + "/" + tag.substring(1) + CLOSE;
+                    int endAt = source.indexOf(end, pos);
+                    if (endAt < 0) {
+                        throw new IllegalArgumentException("Plantilla " + name + ": falta " + end);
+                    }
+                    sections.put(tag, source.substring(pos, endAt));
+                    pos = endAt + end.length();
+                }
+                slotNames.add(tag);
+            }
+        }
+
+        /**
+         * Liga {{slot}} a un valor del modelo (null = vacío). Se escapa para HTML.
+         */
+        public Builder<T> text(String slot, Function<? super T, ?> value) {
+            return bind(slot, (model, out) -> {
+                Object v = value.apply(model);
+                if (v != null) {
+                    escapeHtml(v.toString(), out);
+                }
+            });
+        }
+
+        /**
+         * Liga {{#section}}...{{/section}} a una lista: el bloque es una plantilla
+         * para cada elemento, cuyos huecos se ligan en {@code row}.
+         */
+        public <I> Builder<T> each(String section, Function<? super T, ? extends Iterable<? extends I>> items,
+                UnaryOperator<Builder<I>> row) {
+            String source = sections.get("#" + section);
+            if (source == null) {
+                throw new IllegalStateException("Plantilla " + name + ": no tiene el bloque {{#" + section + "}}");
+            }
+            EmailTemplate<I> rowTemplate = row.apply(new Builder<>(name + "#" + section, source)).build();
+            return bind("#" + section, (model, out) -> {
+                Iterable<? extends I> list = items.apply(model);
+                if (list != null) {
+                    for (I item : list) {
+                        rowTemplate.renderTo(item, out);
+                    }
+                }
+            });
+        }
+
+        public EmailTemplate<T> build() {
+            List<Slot<T>> slots = new ArrayList<>(slotNames.size());
+            for (String slot : slotNames) {
+                Slot<T> writer = bound.get(slot);
+                if (writer == null) {
+                    throw new IllegalStateException("Plantilla " + name + ": falta el valor de {{" + slot + "}}");
+                }
+                slots.add(writer);
+            }
+            return new EmailTemplate<>(name, segments, slots);
+        }
+
+        private Builder<T> bind(String slot, Slot<T> writer) {
+            if (!slotNames.contains(slot)) {
+                throw new IllegalStateException("Plantilla " + name + ": no tiene el hueco {{" + slot + "}}");
+            }
+            bound.put(slot, writer);
+            return this;
+        }
+    }
+}
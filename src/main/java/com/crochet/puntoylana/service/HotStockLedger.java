@@ -0,0 +1,353 @@
+package com.crochet.puntoylana.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock en memoria para productos "hot" (lanzamientos con cientos de compradores
+ * a la vez sobre las mismas filas). Opcional: app.stock.hot.enabled.
+ *
+ * Reservar es descontar de un contador en memoria, repartido en franjas
+ * (stripes) para que los hilos no compitan todos por el mismo compareAndSet;
+ * no se toma ningún lock de fila en la BD. Cada reserva agrega una fila a
+ * stock_journal dentro de la transacción del pedido, así un pedido confirmado
+ * siempre deja su descuento escrito aunque la app se caiga. {@link #flush()}
+ * pasa periódicamente el journal a products.stock en una sola sentencia, y al
+ * arrancar el stock disponible es products.stock + journal pendiente.
+ *
+ * Cuando un admin edita un producto hot, el contador no se reemplaza: se le
+ * aplica la diferencia entre lo que hay en la BD y lo que el contador ya sabía
+ * (ver {@link Stock#resync}). Así las reservas que están a mitad de transacción
+ * no se cuentan dos veces ni vuelven a un contador nuevo si se revierten.
+ *
+ * El contador vive en esta instancia: el modo es para despliegues de una sola
+ * instancia (con varias, cada una vendería el stock completo).
+ */
+@Slf4j
+@Component
+public class HotStockLedger {
+
+    private static final String JOURNAL_SQL = "INSERT INTO stock_journal (product_id, delta) VALUES (?, ?)";
+
+    // Mueve el journal a products en una sola sentencia: filas borradas = filas aplicadas
+    private static final String FLUSH_SQL = """
+            WITH moved AS (
+                DELETE FROM stock_journal RETURNING product_id, delta
+            ), totals AS (
+                SELECT product_id, SUM(delta) AS delta FROM moved GROUP BY product_id
+            )
+            UPDATE products p SET stock = p.stock + t.delta
+            FROM totals t
+            WHERE p.id = t.product_id
+            RETURNING p.id
+            """;
+
+    private static final String AVAILABLE_SQL = """
+            SELECT p.id, p.stock + COALESCE((SELECT SUM(j.delta) FROM stock_journal j WHERE j.product_id = p.id), 0)
+            FROM products p
+            WHERE p.hot_stock AND p.stock IS NOT NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final int stripes;
+    private final Map<Long, Stock> ledger = new ConcurrentHashMap<>();
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedProducts = new LongAdder();
+    private final LongAdder flushErrors = new LongAdder();
+
+    public HotStockLedger(
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher events,
+            @Value("${app.stock.hot.enabled:false}") boolean enabled,
+            @Value("${app.stock.hot.stripes:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int stripes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+        this.enabled = enabled;
+        this.stripes = Math.max(stripes, 1);
+    }
+
+    /**
+     * Unidades disponibles repartidas en franjas. La suma de las franjas es el stock.
+     *
+     * {@code baseline} es el disponible en la BD la última vez que se sincronizó y
+     * {@code committed} las unidades confirmadas desde entonces (ya están en el journal).
+     * Con eso, al volver a leer la BD se sabe cuánto cambió por fuera de las reservas.
+     */
+    private static final class Stock {
+        final AtomicIntegerArray stripes;
+        // Unidades quitadas por un ajuste que no alcanzaron: se cobran de las próximas devoluciones
+        final AtomicInteger debt = new AtomicInteger();
+        final AtomicInteger committed = new AtomicInteger();
+        int baseline; // Solo se toca desde reload/reloadAll, que están sincronizados
+
+        Stock(int stripeCount, int available) {
+            baseline = available;
+            stripes = new AtomicIntegerArray(stripeCount);
+            int units = Math.max(available, 0);
+            for (int i = 0; i < stripeCount; i++) {
+                stripes.set(i, units / stripeCount + (i < units % stripeCount ? 1 : 0));
+            }
+            debt.set(Math.max(-available, 0));
+        }
+
+        int available() {
+            int total = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                total += stripes.get(i);
+            }
+            return total;
+        }
+
+        // Toma de la franja propia y, si no alcanza, de las demás; todo o nada
+        boolean tryTake(int quantity) {
+            int missing = quantity - takeUpTo(quantity);
+            if (missing > 0) {
+                give(quantity - missing);
+                return false;
+            }
+            return true;
+        }
+
+        // Toma lo que haya hasta quantity; devuelve cuánto tomó
+        int takeUpTo(int quantity) {
+            int n = stripes.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            int missing = quantity;
+            for (int k = 0; k < n && missing > 0; k++) {
+                int i = (start + k) % n;
+                while (missing > 0) {
+                    int current = stripes.get(i);
+                    if (current <= 0) {
+                        break;
+                    }
+                    int take = Math.min(current, missing);
+                    if (stripes.compareAndSet(i, current, current - take)) {
+                        missing -= take;
+                    }
+                }
+            }
+            return quantity - missing;
+        }
+
+        void give(int quantity) {
+            int owed;
+            int paid;
+            do {
+                owed = debt.get();
+                paid = Math.min(owed, quantity);
+            } while (paid > 0 && !debt.compareAndSet(owed, owed - paid));
+            if (quantity > paid) {
+                stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity - paid);
+            }
+        }
+
+        /**
+         * Aplica lo que cambió en la BD por fuera de las reservas.
+         *
+         * {@code confirmed} se tomó de {@link #committed} antes de leer {@code available}.
+         * Una reserva confirmada en la BD pero cuyo afterCompletion todavía no corrió
+         * se descuenta dos veces acá (se vende de menos) y se corrige en la próxima
+         * sincronización; nunca se vende de más.
+         */
+        void resync(int available, int confirmed) {
+            int delta = available - (baseline - confirmed);
+            baseline = available;
+            if (delta > 0) {
+                give(delta);
+            } else if (delta < 0) {
+                int missing = -delta - takeUpTo(-delta);
+                if (missing > 0) {
+                    debt.addAndGet(missing);
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica el journal que quedó pendiente (caída incluida) y carga los productos hot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            flush();
+            reloadAll();
+            log.info("🔥 Stock hot en memoria para {} productos ({} franjas)", ledger.size(), stripes);
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo cargar el stock hot, se usará el stock de la BD: {}", e.getMessage());
+            ledger.clear();
+        }
+    }
+
+    public boolean isHot(Long productId) {
+        return ledger.containsKey(productId);
+    }
+
+    public int available(Long productId) {
+        Stock stock = ledger.get(productId);
+        return stock != null ? stock.available() : 0;
+    }
+
+    /**
+     * Reserva las unidades de cada producto hot, todo o nada, dentro de la transacción
+     * del pedido: escribe el journal y, si la transacción se revierte, devuelve las unidades.
+     *
+     * @return productos que no alcanzaron (vacío si se reservó todo)
+     */
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        // Se guarda el contador del que salió cada reserva: si lo reemplazan, las unidades vuelven a ese
+        Map<Stock, Integer> taken = new LinkedHashMap<>();
+        List<Long> shortages = new ArrayList<>();
+        Map<Long, Integer> journal = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            Stock stock = ledger.get(productId);
+            if (stock != null && stock.tryTake(quantity)) {
+                taken.put(stock, quantity);
+                journal.put(productId, quantity);
+            } else {
+                shortages.add(productId);
+            }
+        });
+
+        if (!shortages.isEmpty()) {
+            taken.forEach(Stock::give);
+            rejected.increment();
+            return shortages;
+        }
+
+        // Si la transacción no confirma, las unidades vuelven al contador
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    taken.forEach((stock, quantity) -> stock.committed.addAndGet(quantity));
+                } else {
+                    taken.forEach(Stock::give);
+                }
+            }
+        });
+        jdbcTemplate.batchUpdate(JOURNAL_SQL, journal.entrySet().stream()
+                .map(e -> new Object[] { e.getKey(), -e.getValue() })
+                .toList());
+        reserved.increment();
+        return shortages;
+    }
+
+    /**
+     * Pasa el journal a products.stock. Los pedidos siguen reservando mientras tanto.
+     */
+    @Scheduled(fixedDelayString = "${app.stock.hot.flush-interval:1s}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Long> updated = jdbcTemplate.queryForList(FLUSH_SQL, Long.class);
+            if (!updated.isEmpty()) {
+                flushes.increment();
+                flushedProducts.add(updated.size());
+                events.publishEvent(new StockChangedEvent(Set.copyOf(updated)));
+                log.debug("💾 Stock hot: {} productos actualizados en la BD", updated.size());
+            }
+        } catch (RuntimeException e) {
+            // El journal sigue ahí: se aplica en la próxima pasada
+            flushErrors.increment();
+            log.warn("⚠️ No se pudo volcar el stock hot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Un admin editó o marcó productos: el cambio de stock en la BD se aplica sobre el
+     * contador que ya existe, sin reemplazarlo (las reservas en curso siguen valiendo).
+     * Se vuelca el journal primero, así un producto que deja de ser hot ya tiene sus
+     * ventas en products.stock.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        if (event.isBulk()) {
+            reloadAll();
+        } else if (event.deleted()) {
+            ledger.remove(event.productId());
+        } else {
+            reload(event.productId());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "enabled", enabled,
+                "products", ledger.size(),
+                "reserved", reserved.sum(),
+                "rejected", rejected.sum(),
+                "flushes", flushes.sum(),
+                "flushedProducts", flushedProducts.sum(),
+                "flushErrors", flushErrors.sum());
+    }
+
+    private synchronized void reloadAll() {
+        // Las confirmadas hasta acá ya están en la BD que se lee después
+        Map<Long, Integer> confirmed = new HashMap<>();
+        ledger.forEach((id, stock) -> confirmed.put(id, stock.committed.getAndSet(0)));
+
+        Map<Long, Integer> available = new HashMap<>();
+        jdbcTemplate.query(AVAILABLE_SQL, rs -> {
+            available.put(rs.getLong(1), rs.getInt(2));
+        });
+        ledger.keySet().retainAll(available.keySet());
+        available.forEach((id, units) -> {
+            Stock stock = ledger.get(id);
+            if (stock == null) {
+                ledger.put(id, new Stock(stripes, units));
+            } else {
+                stock.resync(units, confirmed.getOrDefault(id, 0));
+            }
+        });
+    }
+
+    private synchronized void reload(Long productId) {
+        Stock stock = ledger.get(productId);
+        int confirmed = stock != null ? stock.committed.getAndSet(0) : 0;
+
+        List<Integer> available = jdbcTemplate.query(AVAILABLE_SQL + " AND p.id = ?",
+                (rs, i) -> rs.getInt(2), productId);
+        if (available.isEmpty()) {
+            ledger.remove(productId);
+        } else if (stock == null) {
+            ledger.put(productId, new Stock(stripes, available.get(0)));
+        } else {
+            stock.resync(available.get(0), confirmed);
+        }
+    }
+}
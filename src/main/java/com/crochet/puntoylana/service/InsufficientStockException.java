@@ -0,0 +1,33 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.StockShortage;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * No alcanzó el stock para una o más líneas del pedido (409). Nada quedó reservado.
+ */
+public class InsufficientStockException extends ResponseStatusException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // StockShortage no es Serializable: si la excepción se serializa, queda solo el mensaje
+    private final transient List<StockShortage> shortages;
+
+    public InsufficientStockException(List<StockShortage> shortages) {
+        super(HttpStatus.CONFLICT, shortages.stream()
+                .map(s -> String.format("Stock insuficiente para '%s'. Disponible: %d, Solicitado: %d",
+                        s.productName(), s.available(), s.requested()))
+                .collect(Collectors.joining(". ")));
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<StockShortage> getShortages() {
+        return shortages != null ? shortages : List.of();
+    }
+}
@@ -0,0 +1,9 @@
+package com.crochet.puntoylana.service;
+
+/**
+ * Evento publicado por {@link OrderService} cuando un pedido se crea o cambia
+ * (tracking, entrega). {@link OrderHistoryService} lo escucha después del commit
+ * para descartar el historial cacheado de ese usuario.
+ */
+public record OrderChangedEvent(Long orderId, Long userId) {
+}
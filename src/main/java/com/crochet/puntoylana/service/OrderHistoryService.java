@@ -0,0 +1,133 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.OrderDetail;
+import com.crochet.puntoylana.dto.OrderPage;
+import com.crochet.puntoylana.dto.OrderSummary;
+import com.crochet.puntoylana.entity.User;
+import com.crochet.puntoylana.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Historial de pedidos del cliente.
+ *
+ * Las páginas salen por cursor (keyset sobre fecha e id, con el índice
+ * idx_orders_user_date): pedir la página 1 o la 20 cuesta lo mismo, tenga el
+ * usuario 5 pedidos o 500. Las consultas son proyecciones a DTOs, así que no
+ * se cargan User, items ni productos como entidades (nada de N+1).
+ *
+ * Páginas y detalles se cachean por usuario y se descartan después del commit
+ * de cada {@link OrderChangedEvent}. Con varias instancias, las demás ven el
+ * cambio al vencer el TTL.
+ */
+@Service
+public class OrderHistoryService {
+
+    public static final int MAX_PAGE_SIZE = 50;
+
+    private final OrderRepository orderRepository;
+    private final ReadThroughCache<PageKey, OrderPage> pages;
+    private final ReadThroughCache<DetailKey, OrderDetail> details;
+
+    private record PageKey(Long userId, String cursor, int size) {
+    }
+
+    private record DetailKey(Long userId, Long orderId) {
+    }
+
+    private record Cursor(LocalDateTime date, Long id) {
+    }
+
+    public OrderHistoryService(
+            OrderRepository orderRepository,
+            @Value("${app.orders.history.cache-size:10000}") int cacheSize,
+            @Value("${app.orders.history.cache-ttl:1m}") Duration cacheTtl) {
+        this.orderRepository = orderRepository;
+        this.pages = new ReadThroughCache<>("orderHistory", cacheSize, cacheTtl);
+        this.details = new ReadThroughCache<>("orderDetails", cacheSize, cacheTtl);
+    }
+
+    /**
+     * Página del historial, más nuevos primero.
+     *
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public OrderPage page(User user, String cursor, int size) {
+        String normalized = cursor == null || cursor.isBlank() ? null : cursor.trim();
+        int limit = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        Cursor after = decode(normalized); // Valida antes de tocar la caché
+        return pages.get(new PageKey(user.getId(), normalized, limit), key -> Optional.of(load(key, after)))
+                .orElseThrow();
+    }
+
+    public Optional<OrderDetail> detail(User user, Long orderId) {
+        return details.get(new DetailKey(user.getId(), orderId), this::loadDetail);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        pages.invalidateIf(key -> key.userId().equals(event.userId()));
+        details.invalidate(new DetailKey(event.userId(), event.orderId()));
+    }
+
+    // Vencidas que nadie volvió a pedir (la caché no recorre todo en cada request)
+    @Scheduled(fixedDelayString = "${app.cache.sweep-interval:60s}")
+    public void sweepCache() {
+        pages.purgeExpired();
+        details.purgeExpired();
+    }
+
+    public Map<String, ReadThroughCache.Stats> stats() {
+        return Map.of("pages", pages.stats(), "details", details.stats());
+    }
+
+    private OrderPage load(PageKey key, Cursor after) {
+        // Uno de más para saber si hay página siguiente sin contar
+        Limit limit = Limit.of(key.size() + 1);
+        List<OrderSummary> rows = after == null
+                ? orderRepository.findHistory(key.userId(), limit)
+                : orderRepository.findHistoryBefore(key.userId(), after.date(), after.id(), limit);
+
+        boolean hasNext = rows.size() > key.size();
+        List<OrderSummary> items = hasNext ? rows.subList(0, key.size()) : rows;
+        String next = hasNext ? encode(items.get(items.size() - 1)) : null;
+        Long total = after == null ? orderRepository.countByUserId(key.userId()) : null;
+        return new OrderPage(List.copyOf(items), next, total);
+    }
+
+    private Optional<OrderDetail> loadDetail(DetailKey key) {
+        return orderRepository.findDetail(key.orderId(), key.userId())
+                .map(header -> header.withItems(orderRepository.findLines(key.orderId())));
+    }
+
+    // "fecha|id" en Base64 URL-safe
+    private static String encode(OrderSummary last) {
+        String raw = last.date() + "|" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.OrderRequest;
+import com.crochet.puntoylana.entity.Order;
+import com.crochet.puntoylana.entity.User;
+import com.crochet.puntoylana.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Creación de pedidos con Idempotency-Key: un reintento con la misma clave
+ * devuelve el pedido original sin volver a validar, descontar stock ni mandar email.
+ *
+ * Dos niveles: una caché en memoria acotada (con TTL) responde los reintentos
+ * y junta los duplicados simultáneos en la misma ejecución (single-flight);
+ * la tabla order_idempotency_keys, escrita en la transacción del pedido, cubre
+ * reinicios y otras instancias. La fila se inserta antes de crear el pedido:
+ * un duplicado concurrente en otra instancia queda esperando en la clave
+ * primaria hasta que el primero confirma, y entonces lee su resultado.
+ */
+@Slf4j
+@Service
+public class OrderIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO order_idempotency_keys (user_id, idem_key, fingerprint)
+            VALUES (?, ?, ?)
+            ON CONFLICT (user_id, idem_key) DO NOTHING
+            """;
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadThroughCache<String, Completed> completed;
+    private final Duration retention;
+
+    /**
+     * Pedido ya creado para una clave, con la huella del request que lo creó.
+     */
+    private record Completed(Order order, String fingerprint) {
+    }
+
+    private record StoredKey(Long orderId, String fingerprint) {
+    }
+
+    public OrderIdempotencyService(
+            OrderService orderService,
+            OrderRepository orderRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.orders.idempotency.cache-size:10000}") int cacheSize,
+            @Value("${app.orders.idempotency.cache-ttl:1h}") Duration cacheTtl,
+            @Value("${app.orders.idempotency.retention:7d}") Duration retention) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.completed = new ReadThroughCache<>("orderIdempotency", cacheSize, cacheTtl);
+        this.retention = retention;
+    }
+
+    /**
+     * Crea el pedido, o devuelve el que ya creó esta clave. Sin clave, crea siempre.
+     *
+     * @throws ResponseStatusException 400 si la clave no es válida, 422 si se reusó con otro pedido
+     */
+    public Order createOrder(User user, String idempotencyKey, OrderRequest request) {
+        if (idempotencyKey == null) {
+            return orderService.createOrder(user, request);
+        }
+        String key = idempotencyKey.trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+        }
+
+        String fingerprint = fingerprint(request);
+        Completed result = completed
+                .get(user.getId() + ":" + key, k -> Optional.of(execute(user, key, fingerprint, request)))
+                .orElseThrow();
+        if (!result.fingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_CONTENT,
+                    "Idempotency-Key ya usada para otro pedido");
+        }
+        return result.order();
+    }
+
+    /**
+     * Borra las claves viejas: pasado este plazo un reintento ya no es creíble.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.idempotency.cleanup-interval:1h}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM order_idempotency_keys WHERE created_at < ?",
+                LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.debug("🧹 {} claves de idempotencia vencidas borradas", deleted);
+        }
+    }
+
+    // Vencidas que nadie volvió a pedir (la caché no recorre todo en cada request)
+    @Scheduled(fixedDelayString = "${app.cache.sweep-interval:60s}")
+    public void sweepCache() {
+        completed.purgeExpired();
+    }
+
+    public ReadThroughCache.Stats stats() {
+        return completed.stats();
+    }
+
+    private Completed execute(User user, String key, String fingerprint, OrderRequest request) {
+        Order created = transactionTemplate.execute(status -> {
+            // Si la clave ya existe (o la está usando otra transacción, que esperamos), no se crea nada
+            if (jdbcTemplate.update(CLAIM_SQL, user.getId(), key, fingerprint) == 0) {
+                return null;
+            }
+            Order order = orderService.createOrder(user, request);
+            jdbcTemplate.update("UPDATE order_idempotency_keys SET order_id = ? WHERE user_id = ? AND idem_key = ?",
+                    order.getId(), user.getId(), key);
+            return order;
+        });
+        if (created != null) {
+            return new Completed(created, fingerprint);
+        }
+
+        StoredKey stored = findStored(user.getId(), key)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "El pedido con esta Idempotency-Key todavía se está procesando"));
+        log.info("🔁 Reintento de pedido con Idempotency-Key: se devuelve la orden #{}", stored.orderId());
+        Order original = orderRepository.findWithItemsById(stored.orderId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "El pedido original ya no existe"));
+        return new Completed(original, stored.fingerprint());
+    }
+
+    private Optional<StoredKey> findStored(Long userId, String key) {
+        List<StoredKey> rows = jdbcTemplate.query(
+                "SELECT order_id, fingerprint FROM order_idempotency_keys WHERE user_id = ? AND idem_key = ?",
+                (rs, i) -> new StoredKey(rs.getObject(1, Long.class), rs.getString(2)),
+                userId, key);
+        return rows.stream().filter(row -> row.orderId() != null).findFirst();
+    }
+
+    // Huella del contenido del pedido (items y envío), para detectar una clave reusada
+    private static String fingerprint(OrderRequest request) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todo JRE trae SHA-256
+        }
+    }
+}
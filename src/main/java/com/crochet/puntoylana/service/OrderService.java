@@ -7,9 +7,9 @@ import com.crochet.puntoylana.entity.OrderItem;
 import com.crochet.puntoylana.entity.Product;
 import com.crochet.puntoylana.entity.User;
 import com.crochet.puntoylana.repository.OrderRepository;
-import com.crochet.puntoylana.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +17,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -24,33 +25,16 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private final StockReservationService stockReservationService;
     private final EmailService emailService;
+    private final ApplicationEventPublisher events;
 
     @Transactional
     public Order createOrder(User user, OrderRequest request) {
         log.info("🛒 Creando orden para usuario: {}", user.getEmail());
 
-        // ============ FASE 1: Validar stock de todos los productos ============
-        List<Product> productsToUpdate = new ArrayList<>();
-
-        for (OrderItemDto itemDto : request.getItems()) {
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado: " + itemDto.getProductId()));
-
-            // Validar stock (solo si el producto tiene stock definido, no aplica para
-            // digitales)
-            if (product.getStock() != null && product.getStock() >= 0) {
-                if (product.getStock() < itemDto.getQuantity()) {
-                    throw new RuntimeException(
-                            String.format("Stock insuficiente para '%s'. Disponible: %d, Solicitado: %d",
-                                    product.getName(), product.getStock(), itemDto.getQuantity()));
-                }
-            }
-            productsToUpdate.add(product);
-        }
-
-        log.info("✅ Stock validado correctamente para {} productos", productsToUpdate.size());
+        // ============ FASE 1: Reservar stock (UPDATE condicional, todo o nada) ============
+        Map<Long, Product> productsById = stockReservationService.reserve(request.getItems());
 
         // ============ FASE 2: Crear la orden ============
         Order order = new Order();
@@ -68,9 +52,8 @@ public class OrderService {
         BigDecimal total = BigDecimal.ZERO;
 
         // Crear items de la orden
-        int productIndex = 0;
         for (OrderItemDto itemDto : request.getItems()) {
-            Product product = productsToUpdate.get(productIndex++);
+            Product product = productsById.get(itemDto.getProductId());
 
             OrderItem item = OrderItem.builder()
                     .product(product)
@@ -89,50 +72,18 @@ public class OrderService {
         order.setItems(items);
         order.setTotalAmount(total);
 
-        // ============ FASE 3: Descontar stock ============
-        productIndex = 0;
-        for (OrderItemDto itemDto : request.getItems()) {
-            Product product = productsToUpdate.get(productIndex++);
-
-            // Solo descontar si tiene stock definido (productos físicos)
-            if (product.getStock() != null) {
-                int newStock = product.getStock() - itemDto.getQuantity();
-                product.setStock(newStock);
-                productRepository.save(product);
-                log.info("📦 Stock de '{}' actualizado: {} → {}",
-                        product.getName(), product.getStock() + itemDto.getQuantity(), newStock);
-            }
-        }
-
-        // ============ FASE 4: Guardar orden ============
+        // ============ FASE 3: Guardar orden ============
         Order savedOrder = orderRepository.save(order);
         log.info("🎉 Orden #{} creada exitosamente. Total: ${}", savedOrder.getId(), total);
 
-        // ============ FASE 5: Enviar email de confirmación ============
-        try {
-            String productNames = items.stream()
-                    .map(i -> i.getProduct().getName())
-                    .reduce((a, b) -> a + ", " + b)
-                    .orElse("Productos");
-
-            emailService.sendPurchaseConfirmation(
-                    user.getEmail(),
-                    user.getFirstName() != null ? user.getFirstName() : user.getEmail().split("@")[0],
-                    savedOrder.getId().toString(),
-                    total,
-                    productNames);
-        } catch (Exception e) {
-            log.warn("⚠️ No se pudo enviar email de confirmación: {}", e.getMessage());
-            // No fallar la orden por problemas de email
-        }
+        // ============ FASE 4: Encolar email de confirmación ============
+        // Va al outbox en esta misma transacción: si la orden confirma, el email sale
+        emailService.sendPurchaseConfirmation(user.getEmail(), EmailService.displayName(user), savedOrder);
 
+        events.publishEvent(new OrderChangedEvent(savedOrder.getId(), user.getId()));
         return savedOrder;
     }
 
-    public List<Order> getMyOrders(User user) {
-        return orderRepository.findByUserId(user.getId());
-    }
-
     /**
      * Actualizar tracking de envío (desde Admin)
      */
@@ -158,6 +109,7 @@ public class OrderService {
 
         log.info("📦 Tracking actualizado para orden #{}: {} - {}", orderId, shippingCompany, trackingNumber);
 
+        events.publishEvent(new OrderChangedEvent(order.getId(), order.getUser().getId()));
         return orderRepository.save(order);
     }
 
@@ -174,6 +126,7 @@ public class OrderService {
 
         log.info("✅ Orden #{} marcada como entregada", orderId);
 
+        events.publishEvent(new OrderChangedEvent(order.getId(), order.getUser().getId()));
         return orderRepository.save(order);
     }
 }
\ No newline at end of file
@@ -0,0 +1,509 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.BulkUpdateRequest;
+import com.crochet.puntoylana.dto.ImportReport;
+import com.crochet.puntoylana.dto.ProductImportRow;
+import com.crochet.puntoylana.entity.Category;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Importación, exportación y ajustes masivos de productos.
+ *
+ * La importación lee el archivo fila por fila (nunca completo en memoria) y
+ * escribe en bloques de {@value #CHUNK_SIZE} filas, cada bloque en su propia
+ * transacción y como un solo batch JDBC de upserts por SKU. Si un bloque
+ * falla, se reintenta fila por fila para reportar exactamente cuáles fallan.
+ *
+ * Formatos: "csv" (con encabezado) y "jsonl" (un objeto JSON por línea).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductBulkService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    static final List<String> COLUMNS = List.of(
+            "sku", "name", "description", "price", "stock", "imageUrl", "digitalUrl", "category");
+
+    // Cada fila nueva consume un valor de la secuencia (un bloque de 50 para Hibernate):
+    // se desperdician ids, pero nunca se cruzan con los bloques que reservan las entidades
+    private static final String UPSERT_SQL = """
+            INSERT INTO products (id, sku, name, description, price, stock, image_url, digital_url, category)
+            VALUES (nextval('products_seq'), ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (sku) DO UPDATE SET
+                name = EXCLUDED.name,
+                description = EXCLUDED.description,
+                price = EXCLUDED.price,
+                stock = EXCLUDED.stock,
+                image_url = EXCLUDED.image_url,
+                digital_url = EXCLUDED.digital_url,
+                category = EXCLUDED.category
+            """;
+
+    private static final String EXPORT_SQL = """
+            SELECT sku, name, description, price, stock, image_url, digital_url, category
+            FROM products ORDER BY id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final JsonMapper jsonMapper;
+    private final CatalogVersion catalogVersion;
+    private final ApplicationEventPublisher events;
+
+    private record ParsedRow(long line, ProductImportRow row, String error) {
+    }
+
+    // ==================== IMPORTAR ====================
+
+    public ImportReport importProducts(InputStream input, String format) throws IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        skipByteOrderMark(reader);
+        RowReader rows = switch (format.toLowerCase()) {
+            case "csv" -> new CsvRowReader(reader);
+            case "jsonl" -> new JsonLinesRowReader(reader);
+            default -> throw new IllegalArgumentException("Formato no soportado: " + format + " (csv, jsonl)");
+        };
+
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        List<ParsedRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        int processed = 0;
+        int imported = 0;
+        int failed = 0;
+
+        ParsedRow parsed;
+        while ((parsed = rows.next()) != null) {
+            processed++;
+            String error = parsed.error() != null ? parsed.error() : validate(parsed.row());
+            if (error != null) {
+                failed++;
+                addError(errors, parsed, error);
+                continue;
+            }
+            chunk.add(parsed);
+            if (chunk.size() == CHUNK_SIZE) {
+                int ok = flush(chunk, errors);
+                imported += ok;
+                failed += chunk.size() - ok;
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int ok = flush(chunk, errors);
+            imported += ok;
+            failed += chunk.size() - ok;
+        }
+
+        if (imported > 0) {
+            afterBulkChange();
+        }
+        long millis = System.currentTimeMillis() - start;
+        log.info("📥 Importación {}: {} filas, {} importadas, {} con error en {} ms",
+                format, processed, imported, failed, millis);
+        return new ImportReport(processed, imported, failed, errors, millis);
+    }
+
+    private int flush(List<ParsedRow> chunk, List<ImportReport.RowError> errors) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    UPSERT_SQL, chunk, chunk.size(), (ps, parsed) -> bind(ps, parsed.row())));
+            return chunk.size();
+        } catch (DataAccessException e) {
+            // El bloque completo se revirtió: reintentar fila por fila para aislar las malas
+            log.debug("Bloque con errores, reintentando fila por fila: {}", e.getMessage());
+            int ok = 0;
+            for (ParsedRow parsed : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                            UPSERT_SQL, ps -> bind(ps, parsed.row())));
+                    ok++;
+                } catch (DataAccessException rowError) {
+                    addError(errors, parsed, rowError.getMostSpecificCause().getMessage());
+                }
+            }
+            return ok;
+        }
+    }
+
+    private static void bind(PreparedStatement ps, ProductImportRow row) throws SQLException {
+        ps.setString(1, row.sku().trim());
+        ps.setString(2, row.name());
+        ps.setString(3, row.description());
+        ps.setBigDecimal(4, row.price());
+        if (row.stock() != null) {
+            ps.setInt(5, row.stock());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setString(6, row.imageUrl());
+        ps.setString(7, row.digitalUrl());
+        ps.setString(8, row.category().name());
+    }
+
+    private static String validate(ProductImportRow row) {
+        if (row.sku() == null || row.sku().isBlank()) {
+            return "sku es obligatorio";
+        }
+        if (row.sku().trim().length() > 64) {
+            return "sku supera 64 caracteres";
+        }
+        if (row.name() == null || row.name().isBlank()) {
+            return "name es obligatorio";
+        }
+        if (row.price() == null || row.price().signum() < 0) {
+            return "price es obligatorio y no puede ser negativo";
+        }
+        if (row.stock() != null && row.stock() < 0) {
+            return "stock no puede ser negativo";
+        }
+        if (row.category() == null) {
+            return "category es obligatoria";
+        }
+        if (row.description() != null && row.description().length() > 1000) {
+            return "description supera 1000 caracteres";
+        }
+        return null;
+    }
+
+    private static void addError(List<ImportReport.RowError> errors, ParsedRow parsed, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            String sku = parsed.row() != null ? parsed.row().sku() : null;
+            errors.add(new ImportReport.RowError(parsed.line(), sku, message));
+        }
+    }
+
+    // ==================== EXPORTAR ====================
+
+    /**
+     * Escribe todos los productos en el formato pedido, leyendo la BD con un
+     * cursor (fetch size) para no cargar la tabla completa en memoria.
+     */
+    public void exportProducts(OutputStream output, String format) throws IOException {
+        boolean csv = switch (format.toLowerCase()) {
+            case "csv" -> true;
+            case "jsonl" -> false;
+            default -> throw new IllegalArgumentException("Formato no soportado: " + format + " (csv, jsonl)");
+        };
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+
+        // Postgres solo usa cursor con autocommit apagado, es decir, dentro de una transacción
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_SQL);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            String category = rs.getString("category");
+            int stock = rs.getInt("stock");
+            ProductImportRow row = new ProductImportRow(
+                    rs.getString("sku"),
+                    rs.getString("name"),
+                    rs.getString("description"),
+                    rs.getBigDecimal("price"),
+                    rs.wasNull() ? null : stock,
+                    rs.getString("image_url"),
+                    rs.getString("digital_url"),
+                    category != null ? Category.valueOf(category) : null);
+            try {
+                writer.write(csv ? toCsvLine(row) : jsonMapper.writeValueAsString(row));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        writer.flush();
+    }
+
+    private static String toCsvLine(ProductImportRow row) {
+        return String.join(",",
+                csvField(row.sku()),
+                csvField(row.name()),
+                csvField(row.description()),
+                row.price() != null ? row.price().toPlainString() : "",
+                row.stock() != null ? row.stock().toString() : "",
+                csvField(row.imageUrl()),
+                csvField(row.digitalUrl()),
+                row.category() != null ? row.category().name() : "");
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    // ==================== AJUSTES MASIVOS ====================
+
+    /**
+     * Aplica el ajuste como un único UPDATE en la BD. Devuelve las filas afectadas.
+     */
+    public int bulkUpdate(BulkUpdateRequest request) {
+        List<String> sets = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+
+        if (request.getPricePercent() != null || request.getPriceDelta() != null) {
+            BigDecimal percent = request.getPricePercent() != null ? request.getPricePercent() : BigDecimal.ZERO;
+            BigDecimal delta = request.getPriceDelta() != null ? request.getPriceDelta() : BigDecimal.ZERO;
+            sets.add("price = GREATEST(ROUND(price * (100 + ?) / 100 + ?, 2), 0)");
+            args.add(percent);
+            args.add(delta);
+        }
+        if (request.getStockSet() != null) {
+            // Igual que con stockDelta: un producto sin stock (digital) no pasa a tenerlo
+            sets.add("stock = CASE WHEN stock IS NULL THEN NULL ELSE ? END");
+            args.add(Math.max(request.getStockSet(), 0));
+        } else if (request.getStockDelta() != null) {
+            // Stock null (digital) se queda null
+            sets.add("stock = GREATEST(stock + ?, 0)");
+            args.add(request.getStockDelta());
+        }
+        if (sets.isEmpty()) {
+            throw new IllegalArgumentException("No hay ajustes para aplicar");
+        }
+
+        List<String> where = new ArrayList<>();
+        if (request.getCategory() != null) {
+            where.add("category = ?");
+            args.add(request.getCategory().name());
+        }
+        if (request.getSkus() != null && !request.getSkus().isEmpty()) {
+            where.add("sku IN (" + String.join(",", Collections.nCopies(request.getSkus().size(), "?")) + ")");
+            args.addAll(request.getSkus());
+        }
+
+        String sql = "UPDATE products SET " + String.join(", ", sets)
+                + (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where));
+        int updated = jdbcTemplate.update(sql, args.toArray());
+
+        if (updated > 0) {
+            afterBulkChange();
+        }
+        log.info("🛠️ Ajuste masivo aplicado a {} productos", updated);
+        return updated;
+    }
+
+    private void afterBulkChange() {
+        catalogVersion.bump();
+        events.publishEvent(ProductChangedEvent.bulk());
+    }
+
+    // ==================== LECTORES ====================
+
+    private interface RowReader {
+        // null al llegar al final del archivo
+        ParsedRow next() throws IOException;
+    }
+
+    // Excel y el Bloc de notas guardan "UTF-8" con BOM: sin esto la primera columna no se reconoce
+    private static void skipByteOrderMark(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    /**
+     * JSON lines: cada línea no vacía es un objeto con los campos de {@link ProductImportRow}.
+     */
+    private final class JsonLinesRowReader implements RowReader {
+        private final BufferedReader reader;
+        private long line = 0;
+
+        JsonLinesRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ParsedRow(line, jsonMapper.readValue(text, ProductImportRow.class), null);
+                } catch (JacksonException e) {
+                    return new ParsedRow(line, null, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * CSV (RFC 4180) con encabezado. Soporta comillas, comillas escapadas ("")
+     * y saltos de línea dentro de campos entre comillas.
+     */
+    private static final class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long line = 0;
+        private long recordLine = 0; // Línea donde empezó el último registro leído
+
+        CsvRowReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> header = readRecord();
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                // Acepta imageUrl, image_url, ImageURL...
+                columns.put(header.get(i).trim().replace("_", "").toLowerCase(), i);
+            }
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            // line ya avanzó hasta el final del registro si tenía saltos de línea entre comillas
+            long recordLine = this.recordLine;
+            try {
+                ProductImportRow row = new ProductImportRow(
+                        field(fields, "sku"),
+                        field(fields, "name"),
+                        field(fields, "description"),
+                        decimal(field(fields, "price")),
+                        integer(field(fields, "stock")),
+                        field(fields, "imageurl"),
+                        field(fields, "digitalurl"),
+                        category(field(fields, "category")));
+                return new ParsedRow(recordLine, row, null);
+            } catch (IllegalArgumentException e) {
+                return new ParsedRow(recordLine, new ProductImportRow(field(fields, "sku"),
+                        null, null, null, null, null, null, null), e.getMessage());
+            }
+        }
+
+        private String field(List<String> fields, String name) {
+            Integer index = columns.get(name);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index);
+            return value.isEmpty() ? null : value;
+        }
+
+        private static BigDecimal decimal(String value) {
+            try {
+                return value == null ? null : new BigDecimal(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("price no es un número: " + value);
+            }
+        }
+
+        private static Integer integer(String value) {
+            try {
+                return value == null ? null : Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("stock no es un entero: " + value);
+            }
+        }
+
+        private static Category category(String value) {
+            try {
+                return value == null ? null : Category.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("category no válida: " + value);
+            }
+        }
+
+        // Lee un registro completo (puede ocupar varias líneas si hay comillas)
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            line++;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                char ch = (char) c;
+                if (quoted) {
+                    if (ch == '"') {
+                        reader.mark(1);
+                        int peek = reader.read();
+                        if (peek == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (peek != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (ch == '\n') {
+                            line++;
+                        }
+                        field.append(ch);
+                    }
+                } else if (ch == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (ch == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (ch == '\n') {
+                    break;
+                } else if (ch != '\r') {
+                    field.append(ch);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
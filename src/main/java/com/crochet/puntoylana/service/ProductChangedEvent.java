@@ -0,0 +1,30 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.ProductView;
+
+/**
+ * Evento publicado por {@link ProductService} cada vez que un producto se crea,
+ * actualiza o elimina. Los componentes en memoria (snapshot del catálogo, índices)
+ * lo escuchan para refrescarse después del commit.
+ *
+ * @param productId id del producto afectado, o {@code null} si fue un cambio masivo
+ * @param product   estado nuevo del producto, o {@code null} si fue eliminado
+ */
+public record ProductChangedEvent(Long productId, ProductView product) {
+
+    /**
+     * Cambio de muchos productos a la vez (importación, actualización masiva):
+     * los oyentes deben recargar todo en vez de aplicar un producto.
+     */
+    public static ProductChangedEvent bulk() {
+        return new ProductChangedEvent(null, null);
+    }
+
+    public boolean isBulk() {
+        return productId == null;
+    }
+
+    public boolean deleted() {
+        return product == null;
+    }
+}
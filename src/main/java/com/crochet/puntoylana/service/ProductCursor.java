@@ -0,0 +1,126 @@
+package com.crochet.puntoylana.service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cursor opaco para la paginación keyset de productos.
+ * Guarda el orden usado y los valores de la última fila (id y, si aplica, precio)
+ * como "orden:id[:precio]" en Base64 URL-safe.
+ *
+ * Al ordenar por precio, los productos sin precio van al final (en los dos
+ * sentidos) y entre ellos por id: el listado se recorre en dos tramos, y un
+ * cursor con precio "null" indica que ya se está en el segundo. Un id vacío es
+ * el comienzo de ese tramo.
+ */
+public final class ProductCursor {
+
+    /**
+     * Órdenes soportados. Todos terminan en id para que el keyset sea único.
+     */
+    public enum Order {
+        ID(Sort.by("id")),
+        PRICE(Sort.by("price").and(Sort.by("id"))),
+        PRICE_DESC(Sort.by(Sort.Direction.DESC, "price").and(Sort.by("id")));
+
+        private final Sort sort;
+
+        Order(Sort sort) {
+            this.sort = sort;
+        }
+
+        public Sort sort() {
+            return sort;
+        }
+
+        public static Order parse(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return Order.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Orden no válido: " + value + " (id, price, price_desc)");
+            }
+        }
+    }
+
+    /**
+     * Posición decodificada. {@code unpriced}: se está en el tramo de productos sin precio.
+     */
+    public record Position(ScrollPosition scroll, boolean unpriced) {
+    }
+
+    private static final String NULL_PRICE = "null";
+
+    // Orden dentro del tramo sin precio
+    public static final Sort UNPRICED_SORT = Sort.by("id");
+
+    private ProductCursor() {
+    }
+
+    public static Position decode(String cursor, Order order) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Position(ScrollPosition.keyset(), false);
+        }
+
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (parts.length < 2 || !parts[0].equals(order.name())) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        boolean unpriced = false;
+        try {
+            if (order != Order.ID) {
+                unpriced = parts[2].equals(NULL_PRICE);
+                if (!unpriced) {
+                    keys.put("price", new BigDecimal(parts[2]));
+                }
+            }
+            if (unpriced && parts[1].isEmpty()) {
+                return new Position(ScrollPosition.keyset(), true);
+            }
+            keys.put("id", Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        return new Position(ScrollPosition.forward(keys), unpriced);
+    }
+
+    /**
+     * Cursor de la última fila de una página. En el tramo sin precio las claves solo traen el id.
+     */
+    public static String encode(ScrollPosition position, Order order) {
+        Map<String, Object> keys = ((KeysetScrollPosition) position).getKeys();
+        StringBuilder raw = new StringBuilder(order.name()).append(':').append(keys.get("id"));
+        if (order != Order.ID) {
+            BigDecimal price = (BigDecimal) keys.get("price");
+            raw.append(':').append(price != null ? price.toPlainString() : NULL_PRICE);
+        }
+        return encodeRaw(raw.toString());
+    }
+
+    /**
+     * Cursor al comienzo del tramo sin precio (la página anterior terminó justo con el último con precio).
+     */
+    public static String unpricedStart(Order order) {
+        return encodeRaw(order.name() + "::" + NULL_PRICE);
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,370 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.ProductView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buscador de productos en memoria (índice invertido).
+ *
+ * Indexa nombre, descripción y categoría con {@link SpanishAnalyzer} y ordena
+ * por BM25, dando más peso al nombre. Tolera errores de tipeo (distancia de
+ * edición 1 para palabras de 4+ letras, 2 para 8+) y completa la última palabra
+ * como prefijo, para que funcione mientras el usuario escribe.
+ *
+ * Los errores de tipeo se buscan con vecindarios de borrado (SymSpell): cada
+ * término del índice se guarda también con una o dos letras borradas, y una
+ * palabra de la consulta solo se compara con los términos que comparten alguna
+ * de sus variantes, en vez de recorrer todo el vocabulario.
+ *
+ * Se arma una vez desde {@link CatalogSnapshot} y luego se actualiza producto
+ * por producto con cada {@link ProductChangedEvent}. Nunca consulta la BD.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    // Parámetros BM25 estándar
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Peso de cada campo en la frecuencia del término
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    // Factores de un término aproximado respecto a uno exacto
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 30;
+
+    private final CatalogSnapshot catalogSnapshot;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // Variante con letras borradas → términos del índice que la generan
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    private double totalLength = 0;
+    private volatile boolean built = false;
+
+    private record Doc(ProductView product, Map<String, Float> terms, float length) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            ensureBuilt();
+        } catch (RuntimeException e) {
+            log.warn("⚠️ No se pudo precargar el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    // Después del snapshot, que es de donde se arma el índice completo
+    @Order(10)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!built) {
+            return; // Se armará completo en la primera búsqueda
+        }
+        if (event.isBulk()) {
+            built = false;
+            ensureBuilt();
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(event.productId());
+            if (!event.deleted()) {
+                add(event.product());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cambió solo el stock de estos productos: se reemplaza la vista que devuelve
+     * la búsqueda, sin volver a analizar el texto.
+     */
+    public void refreshProducts(Set<Long> productIds, CatalogSnapshot.State state) {
+        if (!built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long id : productIds) {
+                Doc doc = docs.get(id);
+                ProductView product = state.byId().get(id);
+                if (doc != null && product != null) {
+                    docs.put(id, new Doc(product, doc.terms(), doc.length()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca y devuelve como máximo {@code limit} productos, del más relevante al menos.
+     */
+    public List<ProductView> search(String query, int limit) {
+        List<String> tokens = SpanishAnalyzer.tokenize(query);
+        List<String> terms = SpanishAnalyzer.analyze(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        // La última palabra puede estar a medio escribir (si no es una palabra vacía)
+        String lastToken = tokens.get(tokens.size() - 1);
+        String prefix = SpanishAnalyzer.stem(lastToken).equals(terms.get(terms.size() - 1)) ? lastToken : null;
+
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            double avgLength = docs.isEmpty() ? 1 : totalLength / docs.size();
+            Map<Long, Double> scores = new HashMap<>();
+            Map<Long, Integer> matchedTerms = new HashMap<>();
+
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                Map<String, Double> expansions = expand(terms.get(i), last ? prefix : null);
+
+                // Por cada término de la consulta, un producto suma su mejor expansión
+                Map<Long, Double> termScores = new HashMap<>();
+                expansions.forEach((term, factor) -> {
+                    Map<Long, Float> posting = postings.get(term);
+                    double idf = idf(posting.size());
+                    posting.forEach((id, tf) -> {
+                        double norm = tf + K1 * (1 - B + B * docs.get(id).length() / avgLength);
+                        double score = factor * idf * (tf * (K1 + 1)) / norm;
+                        termScores.merge(id, score, Math::max);
+                    });
+                });
+                termScores.forEach((id, score) -> {
+                    scores.merge(id, score, Double::sum);
+                    matchedTerms.merge(id, 1, Integer::sum);
+                });
+            }
+
+            // Premiar a los productos que cubren más palabras de la consulta
+            int totalTerms = terms.size();
+            return scores.entrySet().stream()
+                    .map(e -> Map.entry(e.getKey(),
+                            e.getValue() * matchedTerms.get(e.getKey()) / totalTerms))
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(e -> docs.get(e.getKey()).product())
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Término de la consulta → términos del índice que lo satisfacen, con su factor.
+     */
+    private Map<String, Double> expand(String term, String prefix) {
+        Map<String, Double> expansions = new HashMap<>();
+        if (postings.containsKey(term)) {
+            expansions.put(term, 1.0);
+        } else {
+            int maxEdits = maxEdits(term.length());
+            if (maxEdits > 0) {
+                // Dos palabras a distancia d comparten una variante con d borrados o menos de cada lado
+                Set<String> seen = new HashSet<>();
+                for (String variant : deletionVariants(term, maxEdits)) {
+                    for (String candidate : deletions.getOrDefault(variant, Set.of())) {
+                        if (!seen.add(candidate) || Math.abs(candidate.length() - term.length()) > maxEdits) {
+                            continue;
+                        }
+                        int distance = boundedDistance(term, candidate, maxEdits);
+                        if (distance <= maxEdits) {
+                            expansions.put(candidate, 1.0 / (1 + distance));
+                        }
+                    }
+                }
+            }
+        }
+
+        if (prefix != null && prefix.length() >= MIN_PREFIX_LENGTH) {
+            NavigableMap<String, Map<Long, Float>> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            int count = 0;
+            for (String candidate : range.keySet()) {
+                if (count++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                expansions.merge(candidate, PREFIX_FACTOR, Math::max);
+            }
+        }
+        return expansions;
+    }
+
+    // Errores de tipeo tolerados según el largo de la palabra de la consulta
+    private static int maxEdits(int length) {
+        return length >= 8 ? 2 : length >= 4 ? 1 : 0;
+    }
+
+    /**
+     * Borrados que se indexan por término: los justos para cruzarse con cualquier
+     * consulta a distancia permitida (una de 8+ letras con dos errores nunca
+     * baja de 6, así que a un término de menos de 8 le alcanza con uno).
+     */
+    private static int indexedEdits(int length) {
+        return length >= 8 ? 2 : length >= 3 ? 1 : 0;
+    }
+
+    /**
+     * La palabra y todas las que salen de borrarle hasta {@code edits} letras.
+     */
+    static Set<String> deletionVariants(String word, int edits) {
+        Set<String> variants = new HashSet<>();
+        variants.add(word);
+        Set<String> frontier = Set.of(word);
+        for (int e = 0; e < edits; e++) {
+            Set<String> next = new HashSet<>();
+            for (String current : frontier) {
+                for (int i = 0; i < current.length(); i++) {
+                    String deleted = current.substring(0, i) + current.substring(i + 1);
+                    if (variants.add(deleted)) {
+                        next.add(deleted);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return variants;
+    }
+
+    private double idf(int docFrequency) {
+        return Math.log(1 + (docs.size() - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    /**
+     * Distancia de Damerau-Levenshtein (alineamiento óptimo) que corta apenas
+     * supera {@code max}; en ese caso devuelve max + 1.
+     */
+    static int boundedDistance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, prevPrev[j - 2] + 1);
+                }
+                curr[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] tmp = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[m];
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            long start = System.nanoTime();
+            docs.clear();
+            postings.clear();
+            deletions.clear();
+            totalLength = 0;
+            catalogSnapshot.current().products().forEach(this::add);
+            built = true;
+            log.info("🔎 Índice de búsqueda armado: {} productos, {} términos ({} variantes) en {} ms",
+                    docs.size(), postings.size(), deletions.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Llamar con el write lock tomado
+    private void add(ProductView product) {
+        Map<String, Float> terms = new HashMap<>();
+        float length = 0;
+        length += addField(terms, product.name(), NAME_WEIGHT);
+        length += addField(terms, product.category() != null ? product.category().name() : null, CATEGORY_WEIGHT);
+        length += addField(terms, product.description(), DESCRIPTION_WEIGHT);
+
+        docs.put(product.id(), new Doc(product, terms, length));
+        totalLength += length;
+        terms.forEach((term, tf) -> {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting == null) {
+                posting = new HashMap<>();
+                postings.put(term, posting);
+                for (String variant : deletionVariants(term, indexedEdits(term.length()))) {
+                    deletions.computeIfAbsent(variant, v -> new HashSet<>()).add(term);
+                }
+            }
+            posting.put(product.id(), tf);
+        });
+    }
+
+    // Llamar con el write lock tomado
+    private void remove(Long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= doc.length();
+        for (String term : doc.terms().keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                for (String variant : deletionVariants(term, indexedEdits(term.length()))) {
+                    Set<String> owners = deletions.get(variant);
+                    owners.remove(term);
+                    if (owners.isEmpty()) {
+                        deletions.remove(variant);
+                    }
+                }
+            }
+        }
+    }
+
+    private static float addField(Map<String, Float> terms, String text, float weight) {
+        List<String> analyzed = SpanishAnalyzer.analyze(text);
+        for (String term : analyzed) {
+            terms.merge(term, weight, Float::sum);
+        }
+        return analyzed.size() * weight;
+    }
+}
@@ -1,11 +1,20 @@
 package com.crochet.puntoylana.service;
 
+import com.crochet.puntoylana.dto.ProductPage;
 import com.crochet.puntoylana.dto.ProductRequest;
+import com.crochet.puntoylana.dto.ProductSummary;
+import com.crochet.puntoylana.dto.ProductView;
+import com.crochet.puntoylana.dto.Suggestion;
 import com.crochet.puntoylana.entity.Category;
 import com.crochet.puntoylana.entity.Product;
 import com.crochet.puntoylana.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,11 +22,18 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository repository;
+    private final ApplicationEventPublisher events;
+    private final CatalogVersion catalogVersion;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggester suggester;
 
     // Guardar un producto nuevo
     public Product save(ProductRequest request) {
         var product = Product.builder()
+                .sku(request.getSku())
                 .name(request.getName())
                 .description(request.getDescription())
                 .price(request.getPrice())
@@ -25,7 +41,9 @@ public class ProductService {
                 .imageUrl(request.getImageUrl())
                 .category(request.getCategory())
                 .build();
-        return repository.save(product);
+        Product saved = repository.save(product);
+        publishChange(saved);
+        return saved;
     }
 
     // Listar todos los productos
@@ -48,22 +66,109 @@ public class ProductService {
         }
     }
 
-    // Buscar por nombre (búsqueda parcial)
-    public List<Product> search(String query) {
-        return repository.findByNameContainingIgnoreCase(query);
+    // Buscar en nombre, descripción y categoría (índice en memoria, sin tocar la BD)
+    public List<ProductView> search(String query, int limit) {
+        return searchIndex.search(query, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+    }
+
+    // Autocompletado por prefijo, ordenado por popularidad
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggester.suggest(prefix, Math.clamp(limit, 1, 20));
+    }
+
+    /**
+     * Listado paginado por cursor (keyset). Con summary=true solo se leen las
+     * columnas del grid; con false se devuelve el producto completo.
+     * Lanza IllegalArgumentException si el orden o el cursor no son válidos.
+     */
+    public ProductPage<?> page(String categoryName, String sort, String cursor, int size, boolean summary) {
+        ProductCursor.Order order = ProductCursor.Order.parse(sort);
+        ProductCursor.Position position = ProductCursor.decode(cursor, order);
+        int limit = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        Class<?> type = summary ? ProductSummary.class : Product.class;
+
+        Category category = null;
+        if (categoryName != null && !categoryName.isBlank()) {
+            try {
+                category = Category.valueOf(categoryName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return new ProductPage<>(List.of(), null); // Categoría no válida
+            }
+        }
+
+        List<Object> rows = new ArrayList<>();
+        String next = null;
+        if (order == ProductCursor.Order.ID) {
+            Window<?> window = category == null
+                    ? repository.findAllBy(position.scroll(), order.sort(), Limit.of(limit), type)
+                    : repository.findByCategory(category, position.scroll(), order.sort(), Limit.of(limit), type);
+            rows.addAll(window.getContent());
+            next = nextCursor(window, order);
+        } else {
+            // Por precio: primero los que tienen precio y, al terminarse, los que no (por id)
+            if (!position.unpriced()) {
+                Window<?> priced = category == null
+                        ? repository.findByPriceNotNull(position.scroll(), order.sort(), Limit.of(limit), type)
+                        : repository.findByCategoryAndPriceNotNull(category, position.scroll(), order.sort(), Limit.of(limit), type);
+                rows.addAll(priced.getContent());
+                next = nextCursor(priced, order);
+            }
+            if (next == null) {
+                ScrollPosition from = position.unpriced() ? position.scroll() : ScrollPosition.keyset();
+                int remaining = limit - rows.size();
+                // Página llena: basta con saber si queda alguno sin precio
+                Limit tailLimit = Limit.of(Math.max(remaining, 1));
+                Window<?> unpriced = category == null
+                        ? repository.findByPriceIsNull(from, ProductCursor.UNPRICED_SORT, tailLimit, type)
+                        : repository.findByCategoryAndPriceIsNull(category, from, ProductCursor.UNPRICED_SORT, tailLimit, type);
+                if (remaining == 0) {
+                    next = unpriced.isEmpty() ? null : ProductCursor.unpricedStart(order);
+                } else {
+                    rows.addAll(unpriced.getContent());
+                    next = nextCursor(unpriced, order);
+                }
+            }
+        }
+
+        List<?> items = summary
+                ? rows
+                : rows.stream().map(p -> ProductView.from((Product) p)).toList();
+        return new ProductPage<>(items, next);
+    }
+
+    private static String nextCursor(Window<?> window, ProductCursor.Order order) {
+        return window.hasNext() && !window.isEmpty()
+                ? ProductCursor.encode(window.positionAt(window.size() - 1), order)
+                : null;
     }
 
     // Actualizar producto
     public Optional<Product> update(Long id, ProductRequest request) {
         return repository.findById(id)
                 .map(product -> {
+                    if (request.getSku() != null) {
+                        product.setSku(request.getSku()); // El formulario del admin no siempre lo envía
+                    }
                     product.setName(request.getName());
                     product.setDescription(request.getDescription());
                     product.setPrice(request.getPrice());
                     product.setStock(request.getStock());
                     product.setImageUrl(request.getImageUrl());
                     product.setCategory(request.getCategory());
-                    return repository.save(product);
+                    Product saved = repository.save(product);
+                    publishChange(saved);
+                    return saved;
+                });
+    }
+
+    // Marcar/desmarcar producto para el stock en memoria de lanzamientos (HotStockLedger)
+    public Optional<Product> setHotStock(Long id, boolean hot) {
+        return repository.findById(id)
+                .map(product -> {
+                    product.setHotStock(hot);
+                    Product saved = repository.save(product);
+                    publishChange(saved);
+                    return saved;
                 });
     }
 
@@ -71,6 +176,8 @@ public class ProductService {
     public boolean delete(Long id) {
         if (repository.existsById(id)) {
             repository.deleteById(id);
+            catalogVersion.bump();
+            events.publishEvent(new ProductChangedEvent(id, null));
             return true;
         }
         return false;
@@ -80,4 +187,10 @@ public class ProductService {
     public long count() {
         return repository.count();
     }
-}
\ No newline at end of file
+
+    // Avisar al snapshot del catálogo (y demás vistas en memoria) que hubo cambios
+    private void publishChange(Product product) {
+        catalogVersion.bump();
+        events.publishEvent(new ProductChangedEvent(product.getId(), ProductView.from(product)));
+    }
+}
@@ -0,0 +1,267 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.ProductSales;
+import com.crochet.puntoylana.dto.ProductView;
+import com.crochet.puntoylana.dto.Suggestion;
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Autocompletado del buscador.
+ *
+ * Cada nombre de producto y de categoría se guarda normalizado (sin tildes,
+ * minúsculas) una vez por cada palabra con la que puede empezar la búsqueda:
+ * "Algodón Premium" → "algodon premium" y "premium". Las claves quedan en un
+ * arreglo ordenado, así que un prefijo es un rango contiguo que se ubica con
+ * dos búsquedas binarias. Un árbol de segmentos sobre los pesos saca el top-k
+ * del rango en O(k log n), sin recorrerlo completo.
+ *
+ * El peso es la popularidad (unidades vendidas). Se reconstruye completo con
+ * cada {@link ProductChangedEvent}, así nunca sugiere productos eliminados.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSuggester {
+
+    private static final Map<Category, String> CATEGORY_LABELS = new EnumMap<>(Map.of(
+            Category.YARN, "Lanas",
+            Category.NEEDLE, "Agujas",
+            Category.PATTERN, "Patrones",
+            Category.COURSE, "Cursos",
+            Category.ACCESSORY, "Accesorios"));
+
+    private final CatalogSnapshot catalogSnapshot;
+    private final OrderRepository orderRepository;
+
+    private volatile Dictionary dictionary;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            current();
+        } catch (RuntimeException e) {
+            log.warn("⚠️ No se pudo precargar el autocompletado: {}", e.getMessage());
+        }
+    }
+
+    @Order(20)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Hasta {@code limit} sugerencias cuyo texto (o alguna de sus palabras) empieza por {@code prefix}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalizeKey(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        return current().topK(key, limit);
+    }
+
+    private Dictionary current() {
+        Dictionary current = dictionary;
+        if (current == null) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    private synchronized Dictionary rebuild() {
+        long start = System.nanoTime();
+        List<ProductView> products = catalogSnapshot.current().products();
+        Map<Long, Long> unitsSold = loadUnitsSold();
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        Map<Category, Long> categoryUnits = new EnumMap<>(Category.class);
+        for (ProductView product : products) {
+            if (product.name() == null || product.name().isBlank()) {
+                continue;
+            }
+            long units = unitsSold.getOrDefault(product.id(), 0L);
+            suggestions.add(new Suggestion(product.name(), "product", product.id(), product.category()));
+            weights.add(weight(units, product.name()));
+            if (product.category() != null) {
+                categoryUnits.merge(product.category(), units + 1, Long::sum);
+            }
+        }
+        categoryUnits.forEach((category, units) -> {
+            String label = CATEGORY_LABELS.get(category);
+            suggestions.add(new Suggestion(label, "category", null, category));
+            weights.add(weight(units, label));
+        });
+
+        Dictionary next = Dictionary.build(suggestions, weights);
+        dictionary = next;
+        log.info("💡 Autocompletado armado: {} sugerencias, {} claves en {} ms",
+                suggestions.size(), next.keys.length, (System.nanoTime() - start) / 1_000_000);
+        return next;
+    }
+
+    private Map<Long, Long> loadUnitsSold() {
+        Map<Long, Long> units = new HashMap<>();
+        try {
+            for (ProductSales sales : orderRepository.sumUnitsByProduct()) {
+                units.put(sales.getProductId(), sales.getUnits());
+            }
+        } catch (RuntimeException e) {
+            log.warn("⚠️ No se pudo leer la popularidad, se usará peso uniforme: {}", e.getMessage());
+        }
+        return units;
+    }
+
+    // Más vendidos primero; a igual venta, textos más cortos primero
+    private static long weight(long units, String text) {
+        return (units + 1) * 1024 - Math.min(text.length(), 1023);
+    }
+
+    static String normalizeKey(String text) {
+        return String.join(" ", SpanishAnalyzer.tokenize(text));
+    }
+
+    /**
+     * Estructura inmutable: claves ordenadas + árbol de segmentos de argmax por peso.
+     */
+    static final class Dictionary {
+
+        private final String[] keys;
+        private final int[] targets; // clave → índice de la sugerencia
+        private final long[] weights; // peso de cada clave
+        private final int[] tree; // argmax de cada segmento
+        private final int size;
+        private final Suggestion[] suggestions;
+
+        private Dictionary(String[] keys, int[] targets, long[] weights, Suggestion[] suggestions) {
+            this.keys = keys;
+            this.targets = targets;
+            this.weights = weights;
+            this.suggestions = suggestions;
+            int n = 1;
+            while (n < Math.max(keys.length, 1)) {
+                n <<= 1;
+            }
+            this.size = n;
+            this.tree = new int[2 * n];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < keys.length; i++) {
+                tree[n + i] = i;
+            }
+            for (int i = n - 1; i >= 1; i--) {
+                tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        static Dictionary build(List<Suggestion> suggestions, List<Long> suggestionWeights) {
+            record Entry(String key, int target, long weight) {
+            }
+            List<Entry> entries = new ArrayList<>();
+            for (int s = 0; s < suggestions.size(); s++) {
+                List<String> tokens = SpanishAnalyzer.tokenize(suggestions.get(s).text());
+                for (int w = 0; w < tokens.size(); w++) {
+                    String key = String.join(" ", tokens.subList(w, tokens.size()));
+                    entries.add(new Entry(key, s, suggestionWeights.get(s)));
+                }
+            }
+            entries.sort(Comparator.comparing(Entry::key));
+
+            String[] keys = new String[entries.size()];
+            int[] targets = new int[entries.size()];
+            long[] weights = new long[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                // Las claves repetidas comparten la misma instancia de String
+                keys[i] = i > 0 && entries.get(i).key().equals(keys[i - 1]) ? keys[i - 1] : entries.get(i).key();
+                targets[i] = entries.get(i).target();
+                weights[i] = entries.get(i).weight();
+            }
+            return new Dictionary(keys, targets, weights, suggestions.toArray(Suggestion[]::new));
+        }
+
+        List<Suggestion> topK(String prefix, int k) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            if (from >= to) {
+                return List.of();
+            }
+
+            // Cola de rangos ordenada por el peso de su máximo; cada pop emite un resultado
+            PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Long.compare(weights[b[2]], weights[a[2]]));
+            queue.add(new int[] { from, to, argmax(from, to) });
+            List<Suggestion> result = new ArrayList<>(k);
+            Set<Integer> seen = new HashSet<>();
+            while (!queue.isEmpty() && result.size() < k) {
+                int[] range = queue.poll();
+                int best = range[2];
+                if (seen.add(targets[best])) {
+                    result.add(suggestions[targets[best]]);
+                }
+                if (range[0] < best) {
+                    queue.add(new int[] { range[0], best, argmax(range[0], best) });
+                }
+                if (best + 1 < range[1]) {
+                    queue.add(new int[] { best + 1, range[1], argmax(best + 1, range[1]) });
+                }
+            }
+            return result;
+        }
+
+        private int lowerBound(String key) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // Índice de mayor peso en [from, to)
+        private int argmax(int from, int to) {
+            int best = -1;
+            for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    best = better(best, tree[l++]);
+                }
+                if ((r & 1) == 1) {
+                    best = better(best, tree[--r]);
+                }
+            }
+            return best;
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return weights[b] > weights[a] ? b : a;
+        }
+    }
+}
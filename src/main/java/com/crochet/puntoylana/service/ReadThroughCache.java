@@ -0,0 +1,240 @@
+package com.crochet.puntoylana.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Caché en memoria de lectura directa (read-through), acotada por tamaño y TTL.
+ *
+ * Si varios hilos piden la misma clave ausente a la vez, solo uno ejecuta el
+ * loader y los demás esperan su resultado (single-flight), así una clave
+ * caliente que expira no dispara N consultas iguales a la BD.
+ *
+ * Los resultados vacíos no se guardan: una clave inexistente siempre vuelve a
+ * consultarse.
+ *
+ * El tope de tamaño se cumple con CLOCK: cada entrada guardada ocupa un lugar
+ * en un anillo de {@code maxSize} posiciones, un acierto la marca, y para hacer
+ * lugar la aguja saca la primera vencida o sin marcar que encuentra
+ * (desmarcando las que pasa). Nunca se recorre toda la caché en un request;
+ * las vencidas que nadie vuelve a pedir las borra {@link #purgeExpired()},
+ * que los dueños llaman periódicamente.
+ */
+public class ReadThroughCache<K, V> {
+
+    private static final int FREE_SLOT_PROBES = 64;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    // Anillo CLOCK: un lugar vale si entries todavía tiene esa misma entrada para la clave
+    private final Object[] ringKeys;
+    private final Entry<?>[] ringEntries;
+    private int hand = -1; // Protegidos por ringEntries
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Entry<V> {
+        final CompletableFuture<Optional<V>> value;
+        final long expiresAt;
+        volatile boolean referenced;
+
+        Entry(CompletableFuture<Optional<V>> value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        CompletableFuture<Optional<V>> value() {
+            return value;
+        }
+
+        boolean expired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Contadores acumulados desde el arranque.
+     */
+    public record Stats(String name, int size, long hits, long misses, long coalesced,
+            long evictions, long invalidations) {
+    }
+
+    public ReadThroughCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = Math.max(maxSize, 1);
+        this.ttlNanos = ttl.toNanos();
+        this.ringKeys = new Object[this.maxSize];
+        this.ringEntries = new Entry<?>[this.maxSize];
+    }
+
+    /**
+     * Devuelve el valor cacheado o lo carga con {@code loader}. Las excepciones
+     * del loader se propagan a todos los hilos que esperaban esa carga.
+     */
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        long now = System.nanoTime();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.expired(now)) {
+            if (entry.value().isDone()) {
+                if (!entry.referenced) {
+                    entry.referenced = true;
+                }
+                hits.increment();
+            } else {
+                coalesced.increment();
+            }
+            return join(entry.value());
+        }
+
+        CompletableFuture<Optional<V>> mine = new CompletableFuture<>();
+        Entry<V> created = new Entry<>(mine, now + ttlNanos);
+        Entry<V> winner = entries.compute(key, (k, current) -> current == null || current.expired(now) ? created : current);
+        if (winner != created) {
+            coalesced.increment();
+            return join(winner.value());
+        }
+
+        misses.increment();
+        try {
+            Optional<V> value = loader.apply(key);
+            mine.complete(value);
+            if (value.isEmpty()) {
+                entries.remove(key, created);
+            } else {
+                admit(key, created);
+            }
+            return value;
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, created);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Descarta la clave. Una carga en curso sigue entregándose a quienes ya la
+     * esperaban, pero no queda guardada.
+     */
+    public void invalidate(K key) {
+        if (entries.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Descarta las claves que cumplan {@code test} (recorre toda la caché).
+     */
+    public void invalidateIf(Predicate<? super K> test) {
+        entries.keySet().removeIf(key -> {
+            if (test.test(key)) {
+                invalidations.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void invalidateAll() {
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    /**
+     * Borra las entradas vencidas (recorre toda la caché: para una tarea periódica,
+     * no para el camino de un request). Devuelve cuántas borró.
+     */
+    public int purgeExpired() {
+        long now = System.nanoTime();
+        int[] removed = new int[1];
+        entries.values().removeIf(entry -> {
+            boolean expired = entry.value().isDone() && entry.expired(now);
+            if (expired) {
+                removed[0]++;
+            }
+            return expired;
+        });
+        evictions.add(removed[0]);
+        // Soltar los lugares del anillo que ya no valen, para no retener sus valores
+        synchronized (ringEntries) {
+            for (int i = 0; i < ringEntries.length; i++) {
+                if (ringEntries[i] != null && !isLive(i)) {
+                    ringKeys[i] = null;
+                    ringEntries[i] = null;
+                }
+            }
+        }
+        return removed[0];
+    }
+
+    public Stats stats() {
+        return new Stats(name, entries.size(), hits.sum(), misses.sum(), coalesced.sum(),
+                evictions.sum(), invalidations.sum());
+    }
+
+    /**
+     * Le da a la entrada recién cargada un lugar del anillo; si no hay uno libre,
+     * desaloja con CLOCK. Solo corre en los misses, que ya pagaron una consulta.
+     */
+    private void admit(K key, Entry<V> entry) {
+        long now = System.nanoTime();
+        synchronized (ringEntries) {
+            // Sin pasar el tope hay algún lugar libre (la entrada nueva todavía no ocupa ninguno):
+            // se lo busca unos pocos pasos sin desalojar. Lleno, termina en dos vueltas como
+            // mucho (la primera desmarca todo); en promedio, unos pocos pasos por inserción.
+            boolean full = entries.size() > maxSize;
+            for (int step = 0; ; step++) {
+                hand = (hand + 1) % ringEntries.length;
+                full |= step >= FREE_SLOT_PROBES; // Lejos del lugar libre: desalojar igual
+                Entry<?> current = ringEntries[hand];
+                if (current == null || !isLive(hand)) {
+                    break;
+                }
+                if (!full) {
+                    continue;
+                }
+                if (current.referenced && !current.expired(now)) {
+                    current.referenced = false;
+                    continue;
+                }
+                if (entries.remove(ringKeys[hand], current)) {
+                    evictions.increment();
+                }
+                break;
+            }
+            ringKeys[hand] = key;
+            ringEntries[hand] = entry;
+        }
+    }
+
+    // Llamar con el lock del anillo tomado
+    private boolean isLive(int slot) {
+        return entries.get(ringKeys[slot]) == ringEntries[slot];
+    }
+
+    private static <V> Optional<V> join(CompletableFuture<Optional<V>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
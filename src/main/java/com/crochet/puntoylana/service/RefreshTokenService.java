@@ -0,0 +1,142 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.entity.RefreshToken;
+import com.crochet.puntoylana.entity.User;
+import com.crochet.puntoylana.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Emisión, rotación y revocación de refresh tokens.
+ *
+ * El cliente recibe un valor aleatorio; en la BD solo queda su SHA-256.
+ * Los access tokens llevan el id de la familia (claim "fam"), así el filtro
+ * JWT puede rechazarlos apenas se revoca la sesión.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository repository;
+    private final RevokedTokenFamilies revokedFamilies;
+    private final Duration ttl;
+
+    /**
+     * Refresh token recién emitido.
+     *
+     * @param token valor a entregar al cliente (no se guarda en claro)
+     */
+    public record Issued(String token, String familyId, User user) {
+    }
+
+    public RefreshTokenService(
+            RefreshTokenRepository repository,
+            RevokedTokenFamilies revokedFamilies,
+            @Value("${app.jwt.refresh-expiration:30d}") Duration ttl) {
+        this.repository = repository;
+        this.revokedFamilies = revokedFamilies;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Abre una sesión nueva (familia nueva) para el usuario.
+     */
+    @Transactional
+    public Issued issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Cambia un refresh token válido por uno nuevo de la misma familia.
+     * Un token ya usado revoca la familia completa: alguien más lo tiene.
+     */
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public Issued rotate(String rawToken) {
+        RefreshToken current = repository.findByTokenHash(hash(rawToken))
+                .orElseThrow(RefreshTokenService::invalid);
+        LocalDateTime now = LocalDateTime.now();
+
+        if (current.getRevokedAt() != null || current.getExpiresAt().isBefore(now)) {
+            throw invalid();
+        }
+        // UPDATE condicional: de dos refresh simultáneos con el mismo token, solo uno lo marca,
+        // y un logout que confirmó después de la lectura de arriba también lo frena
+        if (repository.markUsed(current.getId(), now) == 0) {
+            log.warn("🚨 Refresh token reutilizado o revocado, revocando sesión de {}", current.getUser().getEmail());
+            revokeFamily(current.getFamilyId());
+            throw invalid();
+        }
+
+        return issue(current.getUser(), current.getFamilyId());
+    }
+
+    /**
+     * Cierra la sesión del token (logout). Tokens desconocidos se ignoran.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        repository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> revokeFamily(token.getFamilyId()));
+    }
+
+    /**
+     * Cierra todas las sesiones abiertas del usuario (ej: cambio de rol).
+     */
+    @Transactional
+    public void revokeAll(User user) {
+        repository.findActiveFamilies(user.getId(), LocalDateTime.now())
+                .forEach(this::revokeFamily);
+    }
+
+    private void revokeFamily(String familyId) {
+        LocalDateTime now = LocalDateTime.now();
+        repository.revokeFamily(familyId, now);
+        // Si el UPDATE esperó el lock de un rotate en curso, no ve el token que ese rotate
+        // insertó al confirmar; la segunda pasada (con foto nueva) lo alcanza
+        repository.revokeFamily(familyId, now);
+        revokedFamilies.revoke(familyId);
+    }
+
+    private Issued issue(User user, String familyId) {
+        byte[] random = new byte[32];
+        RANDOM.nextBytes(random);
+        String raw = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        repository.save(RefreshToken.builder()
+                .tokenHash(hash(raw))
+                .familyId(familyId)
+                .user(user)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build());
+        return new Issued(raw, familyId, user);
+    }
+
+    private static ResponseStatusException invalid() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesión expirada, vuelve a iniciar sesión");
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todo JRE trae SHA-256
+        }
+    }
+}
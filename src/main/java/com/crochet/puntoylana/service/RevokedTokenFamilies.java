@@ -0,0 +1,175 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Familias de refresh tokens revocadas, consultadas por el filtro JWT en cada
+ * request sin tocar la BD.
+ *
+ * Un filtro de Bloom responde "seguro que no" para casi todos los tokens; solo
+ * cuando dice "quizás" se mira el conjunto exacto, así los falsos positivos
+ * nunca bloquean a nadie. Una revocación solo importa mientras puedan existir
+ * access tokens de esa familia, así que pasado ese tiempo se olvida y el
+ * filtro se reconstruye con lo que queda.
+ *
+ * Con varias instancias, cada una revoca en su memoria y en refresh_tokens;
+ * las demás leen las revocaciones nuevas de la tabla cada {@code poll-interval},
+ * así un access token de una sesión cerrada deja de valer en todas como mucho
+ * ese tiempo después.
+ */
+@Slf4j
+@Component
+public class RevokedTokenFamilies {
+
+    private static final int HASHES = 4;
+
+    // Margen al releer la tabla: revoked_at lo escribe el reloj de otra instancia
+    private static final Duration POLL_OVERLAP = Duration.ofMinutes(1);
+
+    private final RefreshTokenRepository repository;
+    private final long retentionMillis;
+    private final int bits;
+
+    // familia → momento de la revocación
+    private final Map<String, Long> exact = new ConcurrentHashMap<>();
+    private volatile AtomicLongArray bloom;
+    private volatile long lastPurge = System.currentTimeMillis();
+    private volatile LocalDateTime lastSync;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder bloomHits = new LongAdder();
+    private final LongAdder synced = new LongAdder();
+
+    public RevokedTokenFamilies(
+            RefreshTokenRepository repository,
+            @Value("${app.jwt.expiration-ms}") long accessTokenMillis,
+            @Value("${app.jwt.revocation-filter-bits:1048576}") int bits) {
+        this.repository = repository;
+        this.retentionMillis = accessTokenMillis;
+        this.bits = bits;
+        this.bloom = new AtomicLongArray((bits + 63) / 64);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            sync(LocalDateTime.now().minusNanos(retentionMillis * 1_000_000));
+            log.info("🚫 {} familias de tokens revocadas cargadas", exact.size());
+        } catch (RuntimeException e) {
+            log.warn("⚠️ No se pudieron cargar las revocaciones de tokens: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Trae las revocaciones hechas por otras instancias desde la última lectura.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-poll-interval:5s}")
+    public void poll() {
+        LocalDateTime last = lastSync;
+        try {
+            // Si la carga inicial falló, se reintenta completa
+            sync(last != null
+                    ? last.minus(POLL_OVERLAP)
+                    : LocalDateTime.now().minusNanos(retentionMillis * 1_000_000));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ No se pudieron leer las revocaciones de tokens: {}", e.getMessage());
+        }
+    }
+
+    private void sync(LocalDateTime since) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String familyId : repository.findFamiliesRevokedSince(since)) {
+            if (!exact.containsKey(familyId)) {
+                revoke(familyId);
+                synced.increment();
+            }
+        }
+        lastSync = now;
+    }
+
+    /**
+     * Sin I/O: true solo si la familia fue revocada hace menos que la vida de un access token.
+     */
+    public boolean isRevoked(String familyId) {
+        if (familyId == null) {
+            return false;
+        }
+        checks.increment();
+        long hash = hash(familyId);
+        AtomicLongArray current = bloom;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = index(hash, i);
+            if ((current.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        bloomHits.increment();
+        Long revokedAt = exact.get(familyId);
+        return revokedAt != null && System.currentTimeMillis() - revokedAt < retentionMillis;
+    }
+
+    public synchronized void revoke(String familyId) {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge > retentionMillis) {
+            purge(now);
+        }
+        exact.put(familyId, now);
+        long hash = hash(familyId);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = index(hash, i);
+            bloom.getAndAccumulate(bit >>> 6, 1L << bit, (word, mask) -> word | mask);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "revokedFamilies", exact.size(),
+                "checks", checks.sum(),
+                "bloomPositives", bloomHits.sum(),
+                "syncedFromDb", synced.sum());
+    }
+
+    // Olvida revocaciones vencidas y arma un filtro nuevo con las vigentes
+    private void purge(long now) {
+        exact.values().removeIf(revokedAt -> now - revokedAt >= retentionMillis);
+        AtomicLongArray next = new AtomicLongArray(bloom.length());
+        for (String familyId : exact.keySet()) {
+            long hash = hash(familyId);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = index(hash, i);
+                next.set(bit >>> 6, next.get(bit >>> 6) | (1L << bit));
+            }
+        }
+        bloom = next;
+        lastPurge = now;
+    }
+
+    // Doble hashing: h1 + i*h2 sobre un FNV-1a de 64 bits
+    private int index(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + i * h2, bits);
+    }
+
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,97 @@
+package com.crochet.puntoylana.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Normalización de texto en español para el buscador del catálogo:
+ * minúsculas, sin tildes ("algodón" → "algodon"), sin palabras vacías y con
+ * un stemming liviano (plurales y vocal final: "agujas", "aguja" → "aguj").
+ */
+public final class SpanishAnalyzer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "se", "su", "sus", "un", "una", "unos", "unas", "y");
+
+    private SpanishAnalyzer() {
+    }
+
+    /**
+     * Texto → términos listos para indexar o buscar.
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(text)) {
+            if (!STOPWORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Minúsculas y sin tildes, separado en palabras alfanuméricas.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Minúsculas y sin marcas diacríticas ("Ñandú" → "nandu").
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Stemming liviano: quita el plural y la vocal final para unificar
+     * género y número. Palabras cortas y números no se tocan.
+     */
+    public static String stem(String word) {
+        if (word.length() < 4 || Character.isDigit(word.charAt(0))) {
+            return word;
+        }
+        String w = word;
+        if (w.endsWith("ces")) {
+            w = w.substring(0, w.length() - 3) + "z"; // lapices → lapiz
+        } else if (w.endsWith("es") && w.length() > 4 && !isVowel(w.charAt(w.length() - 3))) {
+            w = w.substring(0, w.length() - 2); // algodones → algodon
+        } else if (w.endsWith("s")) {
+            w = w.substring(0, w.length() - 1); // agujas → aguja
+        }
+        if (w.length() > 3 && (w.endsWith("a") || w.endsWith("o") || w.endsWith("e"))) {
+            w = w.substring(0, w.length() - 1); // aguja, rojo → aguj, roj
+        }
+        return w;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
@@ -0,0 +1,13 @@
+package com.crochet.puntoylana.service;
+
+import java.util.Set;
+
+/**
+ * El stock de estos productos cambió por ventas (pedido confirmado o volcado del
+ * journal de {@link HotStockLedger}), no por una edición del admin.
+ *
+ * A diferencia de {@link ProductChangedEvent}, no dispara recargas en cada
+ * oyente: {@link CatalogStockRefresher} lo junta y refresca el catálogo en lote.
+ */
+public record StockChangedEvent(Set<Long> productIds) {
+}
@@ -0,0 +1,119 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.OrderItemDto;
+import com.crochet.puntoylana.dto.StockShortage;
+import com.crochet.puntoylana.entity.Product;
+import com.crochet.puntoylana.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reserva de stock para un pedido sin leer-modificar-escribir en Java.
+ *
+ * Cada producto se descuenta con un UPDATE condicional ({@code stock >= cantidad}):
+ * la BD decide atómicamente, así dos compradores de la última unidad no pueden
+ * ganar los dos. Los UPDATE van en un solo batch y ordenados por id, para que
+ * pedidos concurrentes tomen los locks de fila en el mismo orden (sin deadlocks).
+ * Los productos sin stock definido (digitales) no se descuentan, y los marcados
+ * como hot se reservan en memoria con {@link HotStockLedger}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock = stock - ? WHERE id = ? AND stock IS NOT NULL AND stock >= ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final HotStockLedger hotStockLedger;
+    private final ApplicationEventPublisher events;
+
+    /**
+     * Descuenta el stock de todas las líneas o de ninguna (corre en la transacción del pedido).
+     *
+     * @return productos del pedido por id, ya con el stock descontado
+     * @throws InsufficientStockException con cada línea que no alcanzó
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Product> reserve(List<OrderItemDto> items) {
+        // Cantidad total por producto, en orden de id
+        TreeMap<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItemDto item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new RuntimeException("Cantidad inválida para el producto: " + item.getProductId());
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        // Productos hot: descuento en memoria, sin lock de fila
+        Map<Long, Integer> hotQuantities = new TreeMap<>();
+        quantities.forEach((id, quantity) -> {
+            if (hotStockLedger.isHot(id)) {
+                hotQuantities.put(id, quantity);
+            }
+        });
+        Set<Long> hotShortages = new HashSet<>(hotQuantities.isEmpty()
+                ? List.of()
+                : hotStockLedger.reserve(hotQuantities));
+
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        List<Long> coldIds = ids.stream().filter(id -> !hotQuantities.containsKey(id)).toList();
+        int[] coldUpdated = jdbcTemplate.batchUpdate(RESERVE_SQL, coldIds.stream()
+                .map(id -> new Object[] { quantities.get(id), id, quantities.get(id) })
+                .toList());
+        Set<Long> coldShortages = new HashSet<>();
+        Set<Long> decremented = new HashSet<>();
+        for (int i = 0; i < coldIds.size(); i++) {
+            if (coldUpdated[i] == 0) {
+                coldShortages.add(coldIds.get(i));
+            } else {
+                decremented.add(coldIds.get(i));
+            }
+        }
+
+        // Se leen después del UPDATE: llegan con el stock ya descontado
+        Map<Long, Product> productsById = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<StockShortage> shortages = new ArrayList<>();
+        for (Long id : ids) {
+            Product product = productsById.get(id);
+            if (product == null) {
+                throw new RuntimeException("Producto no encontrado: " + id);
+            }
+            if (hotShortages.contains(id)) {
+                shortages.add(new StockShortage(id, product.getName(), quantities.get(id),
+                        hotStockLedger.available(id)));
+            } else if (coldShortages.contains(id) && product.getStock() != null) {
+                shortages.add(new StockShortage(id, product.getName(), quantities.get(id), product.getStock()));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            // La excepción revierte la transacción: lo que sí se descontó vuelve atrás
+            throw new InsufficientStockException(shortages);
+        }
+
+        // El catálogo en memoria se entera después del commit (los hot, al volcar el journal)
+        if (!decremented.isEmpty()) {
+            events.publishEvent(new StockChangedEvent(decremented));
+        }
+        log.info("✅ Stock reservado para {} productos", ids.size());
+        return productsById;
+    }
+}
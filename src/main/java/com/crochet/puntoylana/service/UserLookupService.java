@@ -0,0 +1,92 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.entity.User;
+import com.crochet.puntoylana.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Búsqueda de usuarios por email con caché, usada en cada request autenticado.
+ *
+ * Todo cambio de un usuario (rol, contraseña) debe subir su securityEpoch y
+ * pasar por {@link #evict} para que el siguiente request lo vea sin esperar al TTL.
+ */
+@Slf4j
+@Service
+public class UserLookupService implements UserDetailsPasswordService {
+
+    private final UserRepository repository;
+    private final ReadThroughCache<String, User> cache;
+    private final ReadThroughCache<Long, Integer> epochs;
+
+    public UserLookupService(
+            UserRepository repository,
+            @Value("${app.cache.users.max-size:10000}") int maxSize,
+            @Value("${app.cache.users.ttl:5m}") Duration ttl) {
+        this.repository = repository;
+        this.cache = new ReadThroughCache<>("users", maxSize, ttl);
+        this.epochs = new ReadThroughCache<>("securityEpochs", maxSize, ttl);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return cache.get(email, repository::findByEmail);
+    }
+
+    /**
+     * Época de seguridad vigente del usuario. Un token con una época distinta
+     * fue emitido antes de un cambio de rol o credenciales y ya no vale.
+     */
+    public Optional<Integer> currentEpoch(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return epochs.get(userId, repository::findSecurityEpochById);
+    }
+
+    public void evict(User user) {
+        cache.invalidate(user.getEmail());
+        epochs.invalidate(user.getId());
+        log.debug("🧹 Usuario {} removido de la caché", user.getEmail());
+    }
+
+    /**
+     * Guarda el hash nuevo cuando Spring Security re-hashea al iniciar sesión
+     * (cambio de costo de BCrypt). No sube la época: la contraseña es la misma.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        return repository.findByEmail(userDetails.getUsername())
+                .map(user -> {
+                    user.setPassword(newPassword);
+                    User saved = repository.save(user);
+                    cache.invalidate(saved.getEmail());
+                    log.info("🔑 Contraseña de {} re-hasheada con el costo actual", saved.getEmail());
+                    return (UserDetails) saved;
+                })
+                .orElse(userDetails);
+    }
+
+    // Vencidas que nadie volvió a pedir (la caché no recorre todo en cada request)
+    @Scheduled(fixedDelayString = "${app.cache.sweep-interval:60s}")
+    public void sweepCache() {
+        cache.purgeExpired();
+        epochs.purgeExpired();
+    }
+
+    public Map<String, ReadThroughCache.Stats> stats() {
+        return Map.of("users", cache.stats(), "securityEpochs", epochs.stats());
+    }
+}
@@ -0,0 +1,4 @@
+-- SKU de producto: clave natural para importaciones (upsert por SKU).
+-- Producción usa ddl-auto=validate, así que aplicar a mano antes de desplegar.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS sku VARCHAR(64);
+ALTER TABLE products ADD CONSTRAINT uk_products_sku UNIQUE (sku);
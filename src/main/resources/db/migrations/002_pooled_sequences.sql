@@ -0,0 +1,19 @@
+-- IDs por secuencia en bloques de 50 (allocationSize de las entidades) en vez
+-- de IDENTITY: Hibernate reserva 50 ids por consulta y puede agrupar los
+-- INSERT en lotes JDBC. El INCREMENT BY debe coincidir con allocationSize.
+--
+-- Cada secuencia arranca después del id más alto existente. La columna deja de
+-- ser IDENTITY y toma su default de la secuencia, para que los INSERT hechos a
+-- mano sigan funcionando.
+
+DO $$
+DECLARE
+    t TEXT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['products', 'orders', 'order_items', 'users', 'ai_designs'] LOOP
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', t || '_seq');
+        EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 50)', t || '_seq', t);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t, t || '_seq');
+    END LOOP;
+END $$;
@@ -0,0 +1,3 @@
+-- Época de seguridad por usuario: los tokens llevan la época con la que se
+-- emitieron y dejan de valer cuando cambia (ej: al promover a admin).
+ALTER TABLE users ADD COLUMN IF NOT EXISTS security_epoch INTEGER NOT NULL DEFAULT 0;
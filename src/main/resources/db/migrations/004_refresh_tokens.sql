@@ -0,0 +1,17 @@
+-- Refresh tokens (solo el hash SHA-256). Una familia agrupa las rotaciones de
+-- una misma sesión; revocarla invalida también sus access tokens.
+CREATE SEQUENCE IF NOT EXISTS refresh_tokens_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id          BIGINT PRIMARY KEY DEFAULT nextval('refresh_tokens_seq'),
+    token_hash  VARCHAR(64) NOT NULL UNIQUE,
+    family_id   VARCHAR(36) NOT NULL,
+    user_id     BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    expires_at  TIMESTAMP(6) NOT NULL,
+    used_at     TIMESTAMP(6),
+    revoked_at  TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_revoked ON refresh_tokens (revoked_at) WHERE revoked_at IS NOT NULL;
@@ -0,0 +1,14 @@
+-- Modo "hot SKU" para lanzamientos: el stock de los productos marcados vive en
+-- memoria y cada venta deja una fila en stock_journal (en la misma transacción
+-- que el pedido). Una tarea periódica pasa el journal a products.stock; al
+-- arrancar, stock + journal pendiente es el stock real aunque se haya caído.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS hot_stock BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS stock_journal (
+    id          BIGSERIAL PRIMARY KEY,
+    product_id  BIGINT NOT NULL REFERENCES products (id) ON DELETE CASCADE,
+    delta       INTEGER NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_journal_product ON stock_journal (product_id);
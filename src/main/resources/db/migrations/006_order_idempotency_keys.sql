@@ -0,0 +1,13 @@
+-- Idempotency-Key de POST /api/v1/orders: la fila se reserva en la misma
+-- transacción que crea el pedido, así un reintento (o un duplicado en otra
+-- instancia) encuentra el pedido original en vez de crear otro.
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    user_id      BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    idem_key     VARCHAR(128) NOT NULL,
+    fingerprint  VARCHAR(64) NOT NULL,
+    order_id     BIGINT REFERENCES orders (id) ON DELETE CASCADE,
+    created_at   TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, idem_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_idempotency_created ON order_idempotency_keys (created_at);
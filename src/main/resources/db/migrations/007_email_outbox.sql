@@ -0,0 +1,18 @@
+-- Outbox de emails: se escribe en la misma transacción que el pedido y un
+-- despachador en segundo plano lo envía por SMTP (reintentos con backoff;
+-- después de max-attempts queda en DEAD para revisión manual).
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id               BIGSERIAL PRIMARY KEY,
+    recipient        VARCHAR(320) NOT NULL,
+    subject          VARCHAR(500) NOT NULL,
+    html             TEXT NOT NULL,
+    status           VARCHAR(16) NOT NULL DEFAULT 'PENDING', -- PENDING, SENT, DEAD
+    attempts         INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at  TIMESTAMP(6) NOT NULL DEFAULT now(),
+    last_error       VARCHAR(1000),
+    created_at       TIMESTAMP(6) NOT NULL DEFAULT now(),
+    sent_at          TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_outbox_pending ON email_outbox (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_email_outbox_sent ON email_outbox (sent_at) WHERE status = 'SENT';
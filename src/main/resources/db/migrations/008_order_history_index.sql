@@ -0,0 +1,6 @@
+-- Historial de pedidos paginado por cursor (más nuevos primero): cada página
+-- es un recorrido corto de este índice, sin importar cuántos pedidos tenga el usuario.
+CREATE INDEX IF NOT EXISTS idx_orders_user_date ON orders (user_id, date DESC, id DESC);
+
+-- Líneas de un pedido (detalle del historial)
+CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items (order_id);
@@ -0,0 +1,10 @@
+-- Contadores del rate limiting compartido (app.rate-limit.backend=postgres).
+-- UNLOGGED: no pasa por el WAL y se vacía si el servidor se cae, lo que para
+-- contadores de un minuto no importa. Las ventanas viejas las borra la app.
+CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_counters (
+    policy     VARCHAR(64)  NOT NULL,
+    client_key VARCHAR(128) NOT NULL,
+    window_id  BIGINT       NOT NULL,
+    hits       BIGINT       NOT NULL,
+    PRIMARY KEY (policy, client_key, window_id)
+);
@@ -0,0 +1,6 @@
+-- Listado del catálogo paginado por cursor (keyset): cada página es un
+-- recorrido corto de uno de estos índices en vez de ordenar toda la tabla.
+-- Por precio, los productos sin precio van en un tramo aparte ordenado por id.
+CREATE INDEX IF NOT EXISTS idx_products_price_id ON products (price, id);
+
+CREATE INDEX IF NOT EXISTS idx_products_category_id ON products (category, id);
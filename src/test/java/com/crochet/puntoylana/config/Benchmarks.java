@@ -0,0 +1,40 @@
+package com.crochet.puntoylana.config;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Medición mínima para los tests con {@code @Tag("benchmark")}: calienta el JIT,
+ * mide varias tandas y se queda con la mediana. No reemplaza a JMH, pero es
+ * repetible y corre con el classpath de los tests:
+ * {@code mvn test -Dgroups=benchmark -DexcludedGroups=}
+ */
+final class Benchmarks {
+
+	private static final int ROUNDS = 7;
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * Nanosegundos por operación (mediana de las tandas). {@code op} recibe el
+	 * número de iteración, para que cada una pueda usar otro dato.
+	 */
+	static double nanosPerOp(String name, int warmup, int iterations, IntConsumer op) {
+		for (int i = 0; i < warmup; i++) {
+			op.accept(i);
+		}
+		double[] rounds = new double[ROUNDS];
+		for (int r = 0; r < ROUNDS; r++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				op.accept(i);
+			}
+			rounds[r] = (double) (System.nanoTime() - start) / iterations;
+		}
+		Arrays.sort(rounds);
+		double median = rounds[ROUNDS / 2];
+		System.out.printf("%-48s %10.0f ns/op%n", name, median);
+		return median;
+	}
+}
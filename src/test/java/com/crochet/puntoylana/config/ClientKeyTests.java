@@ -0,0 +1,103 @@
+package com.crochet.puntoylana.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parseo de IPs a {@link ClientKey}: IPv4, IPv6 en todas sus formas y valores inválidos.
+ */
+class ClientKeyTests {
+
+	@Test
+	void parsesIpv4AsMappedIpv6() {
+		ClientKey key = ClientKey.ofAddress("192.0.2.1");
+
+		assertThat(key).isNotNull();
+		assertThat(key.isIpv4()).isTrue();
+		assertThat(key.toString()).isEqualTo("192.0.2.1");
+		assertThat(ClientKey.ofAddress("::ffff:192.0.2.1")).isEqualTo(key);
+		assertThat(ClientKey.ofAddress(" 192.0.2.1 ")).isEqualTo(key);
+	}
+
+	@Test
+	void rejectsInvalidIpv4() {
+		assertThat(ClientKey.ofAddress("256.1.1.1")).isNull();
+		assertThat(ClientKey.ofAddress("1.2.3")).isNull();
+		assertThat(ClientKey.ofAddress("1.2.3.4.5")).isNull();
+		assertThat(ClientKey.ofAddress("1..2.3")).isNull();
+		assertThat(ClientKey.ofAddress("a.b.c.d")).isNull();
+		assertThat(ClientKey.ofAddress("")).isNull();
+		assertThat(ClientKey.ofAddress(null)).isNull();
+	}
+
+	@Test
+	void parsesIpv6Forms() {
+		ClientKey full = ClientKey.ofAddress("2001:0db8:0000:0000:0000:0000:0000:0001");
+
+		assertThat(full).isNotNull();
+		assertThat(full.isIpv4()).isFalse();
+		assertThat(full.toString()).isEqualTo("2001:db8:0:0:0:0:0:1");
+		assertThat(ClientKey.ofAddress("2001:db8::1")).isEqualTo(full);
+		assertThat(ClientKey.ofAddress("[2001:db8::1]")).isEqualTo(full);
+		assertThat(ClientKey.ofAddress("2001:DB8::1")).isEqualTo(full);
+		// El índice de zona no es parte de la dirección
+		assertThat(ClientKey.ofAddress("fe80::1%eth0")).isEqualTo(ClientKey.ofAddress("fe80::1"));
+		assertThat(ClientKey.ofAddress("::1").toString()).isEqualTo("0:0:0:0:0:0:0:1");
+		assertThat(ClientKey.ofAddress("2001:db8::").toString()).isEqualTo("2001:db8:0:0:0:0:0:0");
+	}
+
+	@Test
+	void parsesIpv6WithEmbeddedIpv4() {
+		ClientKey key = ClientKey.ofAddress("64:ff9b::192.0.2.33");
+
+		assertThat(key).isNotNull();
+		assertThat(key.toString()).isEqualTo("64:ff9b:0:0:0:0:c000:221");
+	}
+
+	@Test
+	void rejectsInvalidIpv6() {
+		assertThat(ClientKey.ofAddress("1::2::3")).isNull();
+		assertThat(ClientKey.ofAddress("12345::1")).isNull();
+		assertThat(ClientKey.ofAddress("g::1")).isNull();
+		assertThat(ClientKey.ofAddress("1:2:3:4:5:6:7")).isNull();
+		assertThat(ClientKey.ofAddress("1:2:3:4:5:6:7:8:9")).isNull();
+		assertThat(ClientKey.ofAddress("1:2:3:4:5:6:7::8")).isNull();
+		assertThat(ClientKey.ofAddress("1:2:::3")).isNull();
+		assertThat(ClientKey.ofAddress("::300.1.1.1")).isNull();
+	}
+
+	@Test
+	void userKeysNeverCollideWithAddresses() {
+		ClientKey user = ClientKey.ofUser(42);
+
+		assertThat(user.isUser()).isTrue();
+		assertThat(user.isIpv4()).isFalse();
+		assertThat(user.toString()).isEqualTo("u:42");
+		// Las IPs de ff00::/8 son multicast: nunca llegan como IP de origen
+		assertThat(ClientKey.ofAddress("2001:db8::2a").isUser()).isFalse();
+		assertThat(ClientKey.ofAddress("0.0.0.42")).isNotEqualTo(user);
+	}
+
+	@Test
+	void ipv6ClientsAreGroupedByTheirSlash64() {
+		ClientKey subnet = ClientKey.ofAddress("2001:db8:1:2::1").subnet();
+
+		assertThat(ClientKey.ofAddress("2001:db8:1:2:aaaa:bbbb:cccc:dddd").subnet()).isEqualTo(subnet);
+		assertThat(ClientKey.ofAddress("2001:db8:1:3::1").subnet()).isNotEqualTo(subnet);
+		assertThat(subnet.toString()).isEqualTo("2001:db8:1:2:0:0:0:0");
+	}
+
+	@Test
+	void ipv4UsersAndNat64KeepTheWholeKey() {
+		ClientKey ipv4 = ClientKey.ofAddress("192.0.2.1");
+		ClientKey nat64 = ClientKey.ofAddress("64:ff9b::192.0.2.1");
+		ClientKey user = ClientKey.ofUser(42);
+
+		assertThat(ipv4.subnet()).isEqualTo(ipv4);
+		assertThat(nat64.subnet()).isEqualTo(nat64);
+		assertThat(ClientKey.ofAddress("64:ff9b::192.0.2.2").subnet()).isNotEqualTo(nat64.subnet());
+		assertThat(user.subnet()).isEqualTo(user);
+		assertThat(ClientKey.ofAddress("::1").subnet()).isEqualTo(ClientKey.ofAddress("::1"));
+	}
+}
@@ -0,0 +1,110 @@
+package com.crochet.puntoylana.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ClientTable}: tope fijo de claves, desalojo CLOCK y borrado con corrimiento.
+ */
+class ClientTableTests {
+
+	private static ClientKey ip(int n) {
+		return ClientKey.ofAddress("10." + (n >>> 16 & 0xFF) + "." + (n >>> 8 & 0xFF) + "." + (n & 0xFF));
+	}
+
+	@Test
+	void updateReturnsThePreviousValue() {
+		ClientTable table = new ClientTable(16);
+		ClientKey key = ip(1);
+
+		assertThat(table.update(key, 7, v -> v + 1)).isEqualTo(7L);
+		assertThat(table.update(key, 7, v -> v + 1)).isEqualTo(8L);
+		assertThat(table.update(key, 7, v -> v * 10)).isEqualTo(9L);
+		assertThat(table.update(ip(2), 0, v -> v)).isEqualTo(0L);
+		assertThat(table.size()).isEqualTo(2);
+	}
+
+	@Test
+	void neverGrowsPastMaxEntriesUnderPressure() {
+		ClientTable table = new ClientTable(1_000);
+		int maxKeys = (int) table.stats().get("maxKeys");
+
+		// Una ráfaga de IPs que no se repiten (lo que haría un atacante con IPs falsas)
+		for (int i = 0; i < 200_000; i++) {
+			table.update(ip(i), 0, v -> v + 1);
+		}
+
+		assertThat(table.size()).isLessThanOrEqualTo(maxKeys);
+		assertThat(maxKeys).isBetween(1_000, 1_100);
+		assertThat((long) table.stats().get("evictions")).isGreaterThanOrEqualTo(200_000L - maxKeys);
+		// La tabla sigue funcionando: una clave recién insertada se encuentra
+		table.update(ip(300_000), 5, v -> v);
+		assertThat(table.update(ip(300_000), 0, v -> v)).isEqualTo(5L);
+	}
+
+	@Test
+	void clockKeepsKeysThatKeepComingBack() {
+		ClientTable table = new ClientTable(64);
+		ClientKey regular = ClientKey.ofUser(1);
+		table.update(regular, 0, v -> v + 1);
+
+		for (int i = 0; i < 10_000; i++) {
+			table.update(ip(i), 0, v -> v + 1);
+			table.update(regular, 0, v -> v + 1);
+		}
+
+		// Nunca se desalojó: conserva todas sus visitas
+		assertThat(table.update(regular, 0, v -> v)).isEqualTo(10_001L);
+		assertThat(table.size()).isLessThanOrEqualTo((int) table.stats().get("maxKeys"));
+	}
+
+	@Test
+	void removeIfKeepsTheRestReachable() {
+		// Holgada para que no haya desalojos
+		ClientTable table = new ClientTable(16_384);
+		for (int i = 0; i < 3_000; i++) {
+			table.update(ip(i), i, v -> v);
+		}
+
+		assertThat(table.removeIf(value -> value % 2 == 0)).isEqualTo(1_500);
+		assertThat(table.size()).isEqualTo(1_500);
+
+		// El corrimiento hacia atrás no puede dejar claves fuera de su cadena de sondeo
+		for (int i = 0; i < 3_000; i++) {
+			long expected = i % 2 == 0 ? -1 : i;
+			assertThat(table.update(ip(i), -1, v -> v)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void concurrentWritersStayWithinTheCap() throws Exception {
+		ClientTable table = new ClientTable(512);
+		int maxKeys = (int) table.stats().get("maxKeys");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int offset = t * 100_000;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20_000; i++) {
+						table.update(ip(offset + i), 0, v -> v + 1);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(table.size()).isLessThanOrEqualTo(maxKeys);
+	}
+}
@@ -0,0 +1,70 @@
+package com.crochet.puntoylana.config;
+
+import com.crochet.puntoylana.service.RevokedTokenFamilies;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+
+import static com.crochet.puntoylana.config.JwtServiceTests.USER;
+import static com.crochet.puntoylana.config.JwtServiceTests.jwtService;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Costo por request de {@link JwtAuthenticationFilter} con la caché de tokens
+ * verificados: un token repetido, la caché llena de tokens vigentes y más
+ * clientes que lugares (desalojo en cada miss).
+ */
+@Tag("benchmark")
+class JwtFilterBenchmarkTests {
+
+	private static final int CACHE_SIZE = 10_000;
+	private static final FilterChain CHAIN = (request, response) -> {
+	};
+
+	private final JwtService jwtService = jwtService(3_600_000, CACHE_SIZE);
+	private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(
+			jwtService, email -> USER, null, new RevokedTokenFamilies(null, 3_600_000, 1 << 20));
+
+	private MockHttpServletRequest[] requests(int clients) {
+		MockHttpServletRequest[] requests = new MockHttpServletRequest[clients];
+		for (int i = 0; i < clients; i++) {
+			requests[i] = new MockHttpServletRequest("GET", "/api/orders");
+			requests[i].addHeader("Authorization", "Bearer " + jwtService.generateToken(Map.of("n", i), USER));
+		}
+		return requests;
+	}
+
+	private void filter(MockHttpServletRequest request) {
+		try {
+			filter.doFilter(request, new MockHttpServletResponse(), CHAIN);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		} finally {
+			assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	@Test
+	void perRequestCostStaysFlatWhileTheCacheIsFull() {
+		MockHttpServletRequest[] one = requests(1);
+		MockHttpServletRequest[] full = requests(CACHE_SIZE);
+		MockHttpServletRequest[] overflow = requests(4 * CACHE_SIZE);
+
+		double hit = Benchmarks.nanosPerOp("jwt: un token", 50_000, 100_000, i -> filter(one[0]));
+		double fullHit = Benchmarks.nanosPerOp("jwt: " + CACHE_SIZE + " tokens (caché llena)", 2 * CACHE_SIZE,
+				10 * CACHE_SIZE, i -> filter(full[i % full.length]));
+		double churn = Benchmarks.nanosPerOp("jwt: " + overflow.length + " tokens (desalojo)", overflow.length,
+				overflow.length, i -> filter(overflow[i % overflow.length]));
+
+		// Llena pero sin recorrerla ni vaciarla: los vigentes se siguen encontrando
+		assertThat(fullHit).isLessThan(churn);
+		assertThat(hit).isLessThan(churn);
+		assertThat((int) jwtService.cacheStats().get("size")).isLessThanOrEqualTo(CACHE_SIZE);
+	}
+}
@@ -0,0 +1,69 @@
+package com.crochet.puntoylana.config;
+
+import com.crochet.puntoylana.entity.Role;
+import com.crochet.puntoylana.entity.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Caché de tokens verificados de {@link JwtService}: tope de tamaño y expiración.
+ */
+class JwtServiceTests {
+
+	static final String SECRET = "cHVudG95bGFuYS10ZXN0LXNlY3JldC1jb24tMzItYnl0ZXMtbyBtYXM=";
+
+	static final User USER = User.builder()
+			.id(1L)
+			.email("ana@example.com")
+			.firstName("Ana")
+			.role(Role.ROLE_USER)
+			.build();
+
+	static JwtService jwtService(long expirationMs, int cacheSize) {
+		JwtService service = new JwtService();
+		ReflectionTestUtils.setField(service, "SECRET_KEY", SECRET);
+		ReflectionTestUtils.setField(service, "EXPIRATION_MS", expirationMs);
+		ReflectionTestUtils.setField(service, "VERIFIED_CACHE_SIZE", cacheSize);
+		service.init();
+		return service;
+	}
+
+	@Test
+	void aFullCacheKeepsTheTokensStillInUse() {
+		JwtService service = jwtService(60_000, 100);
+		String hot = service.generateToken(USER);
+		service.verify(hot);
+
+		for (int i = 0; i < 2_000; i++) {
+			service.verify(service.generateToken(Map.of("n", i), USER));
+			assertThat(service.verify(hot).getSubject()).isEqualTo(USER.getEmail());
+		}
+
+		Map<String, Object> stats = service.cacheStats();
+		// Solo el primero del token en uso fue miss: llenarse no vacía la caché
+		assertThat(stats.get("misses")).isEqualTo(2_001L);
+		assertThat(stats.get("hits")).isEqualTo(2_000L);
+		assertThat((int) stats.get("size")).isLessThanOrEqualTo(100);
+		assertThat((long) stats.get("evictions")).isGreaterThanOrEqualTo(2_001L - 100);
+	}
+
+	@Test
+	void aCachedTokenStopsBeingValidWhenItExpires() throws InterruptedException {
+		// Emitido con vida corta y verificado por una caché que recuerda por una hora
+		String token = jwtService(2_000, 100).generateToken(USER);
+		JwtService service = jwtService(3_600_000, 100);
+		assertThat(service.verify(token).getSubject()).isEqualTo(USER.getEmail());
+
+		// El exp va en segundos enteros: queda entre 1 y 2 s después de emitido
+		Thread.sleep(2_100);
+
+		assertThatThrownBy(() -> service.verify(token)).isInstanceOf(ExpiredJwtException.class);
+		assertThatThrownBy(() -> service.verify(token)).isInstanceOf(ExpiredJwtException.class);
+	}
+}
@@ -0,0 +1,82 @@
+package com.crochet.puntoylana.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Costo por request de {@link RateLimitFilter} (limitador local) según cuántos
+ * clientes distintos lleva: tiene que mantenerse plano hasta el tope de
+ * {@code max-clients} y también pasado el tope.
+ */
+@Tag("benchmark")
+class RateLimitFilterBenchmarkTests {
+
+	private static final FilterChain CHAIN = (request, response) -> {
+	};
+
+	private final RateLimitProperties properties = new RateLimitProperties();
+	private final RateLimitFilter filter;
+	private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/public/products");
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	RateLimitFilterBenchmarkTests() {
+		// Cupo de sobra: se mide la contabilidad, no los 429 (que además loguean)
+		RateLimitProperties.Policy catalog = properties.getPolicies().stream()
+				.filter(p -> p.getName().equals("catalog"))
+				.findFirst()
+				.orElseThrow();
+		catalog.setBurst(Integer.MAX_VALUE / 2);
+		catalog.setRate(Integer.MAX_VALUE / 2);
+		filter = new RateLimitFilter(properties,
+				new StaticListableBeanFactory().getBeanProvider(SharedRateLimitBackend.class));
+	}
+
+	private static String[] addresses(int clients) {
+		String[] addresses = new String[clients];
+		for (int i = 0; i < clients; i++) {
+			// 198.18.0.0/15, reservada para pruebas: hasta 131072 direcciones
+			addresses[i] = "198." + (18 + (i >> 16)) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+		}
+		return addresses;
+	}
+
+	private void filter(String address) {
+		request.setRemoteAddr(address);
+		try {
+			filter.doFilter(request, response, CHAIN);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private double measure(String name, String[] addresses) {
+		return Benchmarks.nanosPerOp(name, 2 * addresses.length, Math.max(addresses.length, 200_000),
+				i -> filter(addresses[i % addresses.length]));
+	}
+
+	@Test
+	void perRequestCostStaysFlatUpTo100kClients() {
+		int maxClients = properties.getMaxClients();
+
+		double few = measure("rate limit: 1000 clientes", addresses(1_000));
+		double many = measure("rate limit: " + maxClients + " clientes", addresses(maxClients));
+		double past = measure("rate limit: " + (maxClients + 30_000) + " clientes (pasado el tope)",
+				addresses(maxClients + 30_000));
+
+		// Solo pesa que la tabla ya no entra en la caché del procesador, no recorrerla
+		assertThat(many).isLessThan(3 * few);
+		assertThat(past).isLessThan(3 * few);
+		@SuppressWarnings("unchecked")
+		Map<String, Object> catalog = (Map<String, Object>) filter.stats().get("catalog");
+		assertThat(catalog).containsEntry("blocked", 0L);
+		System.out.println("catalog: " + catalog);
+	}
+}
@@ -0,0 +1,218 @@
+package com.crochet.puntoylana.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ventana deslizante y sincronización de {@link SharedRateLimitBackend}, con
+ * contadores en memoria y un reloj manual (sin BD ni esperas).
+ */
+class SharedRateLimitBackendTests {
+
+	private static final String POLICY = "api";
+	private static final int RATE = 10;
+	private static final Duration PERIOD = Duration.ofSeconds(60);
+	private static final long PERIOD_MS = PERIOD.toMillis();
+	private static final ClientKey CLIENT = ClientKey.ofAddress("203.0.113.7");
+
+	private final AtomicLong now = new AtomicLong();
+	private InMemorySharedCounters store;
+
+	@BeforeEach
+	void setUp() {
+		// Principio de una ventana, lejos del cero
+		now.set(1_000 * PERIOD_MS);
+		store = new InMemorySharedCounters();
+	}
+
+	private SharedRateLimitBackend backend(SharedCounters counters) {
+		return new SharedRateLimitBackend(counters, 1_000, now::get);
+	}
+
+	private static int acquireAll(RateLimiter limiter, ClientKey key) {
+		int allowed = 0;
+		while (limiter.tryAcquire(key).allowed()) {
+			allowed++;
+		}
+		return allowed;
+	}
+
+	@Test
+	void allowsTheRateWithinOneWindowAndThenBlocks() {
+		RateLimiter limiter = backend(store).limiter(POLICY, RATE, PERIOD);
+
+		RateLimiter.Decision first = limiter.tryAcquire(CLIENT);
+		assertThat(first.allowed()).isTrue();
+		assertThat(first.remaining()).isEqualTo(RATE - 1);
+
+		assertThat(acquireAll(limiter, CLIENT)).isEqualTo(RATE - 1);
+
+		RateLimiter.Decision blocked = limiter.tryAcquire(CLIENT);
+		assertThat(blocked.allowed()).isFalse();
+		assertThat(blocked.remaining()).isZero();
+		// Sin nada en la ventana anterior hay que esperar a la siguiente
+		assertThat(blocked.retryAfter()).isEqualTo(PERIOD);
+	}
+
+	@Test
+	void weighsThePreviousWindowByWhatIsLeftOfIt() {
+		RateLimiter limiter = backend(store).limiter(POLICY, RATE, PERIOD);
+		assertThat(acquireAll(limiter, CLIENT)).isEqualTo(RATE);
+
+		// A mitad de la ventana siguiente, la anterior cuenta 10 * 0.5 = 5
+		now.addAndGet(PERIOD_MS + PERIOD_MS / 2);
+		assertThat(acquireAll(limiter, CLIENT)).isEqualTo(RATE - 5);
+
+		// Con un 10% de la ventana anterior adentro: 10 * 0.1 + 5 = 6, entran 4 más
+		now.addAndGet(PERIOD_MS * 4 / 10);
+		assertThat(acquireAll(limiter, CLIENT)).isEqualTo(4);
+
+		// Dos ventanas después ya no cuenta nada de lo viejo
+		now.addAndGet(2 * PERIOD_MS);
+		assertThat(acquireAll(limiter, CLIENT)).isEqualTo(RATE);
+	}
+
+	@Test
+	void retryAfterPointsToWhenThePreviousWindowWeighsLittleEnough() {
+		RateLimiter limiter = backend(store).limiter(POLICY, RATE, PERIOD);
+		acquireAll(limiter, CLIENT);
+		now.addAndGet(PERIOD_MS); // Principio de la ventana siguiente: la anterior pesa entera
+
+		RateLimiter.Decision blocked = limiter.tryAcquire(CLIENT);
+		assertThat(blocked.allowed()).isFalse();
+		// Entra uno cuando 10 * (1 - t) + 1 <= 10, o sea al 10% de la ventana
+		assertThat(blocked.retryAfter()).isEqualTo(Duration.ofMillis(PERIOD_MS / 10));
+
+		now.addAndGet(blocked.retryAfter().toMillis());
+		assertThat(limiter.tryAcquire(CLIENT).allowed()).isTrue();
+	}
+
+	@Test
+	void keysAreCountedSeparately() {
+		RateLimiter limiter = backend(store).limiter(POLICY, RATE, PERIOD);
+		acquireAll(limiter, CLIENT);
+
+		assertThat(limiter.tryAcquire(ClientKey.ofAddress("203.0.113.8")).allowed()).isTrue();
+		assertThat(limiter.tryAcquire(ClientKey.ofUser(42)).allowed()).isTrue();
+	}
+
+	@Test
+	void syncSharesTheCountsBetweenInstances() {
+		SharedRateLimitBackend a = backend(store);
+		SharedRateLimitBackend b = backend(store);
+		RateLimiter limiterA = a.limiter(POLICY, RATE, PERIOD);
+		RateLimiter limiterB = b.limiter(POLICY, RATE, PERIOD);
+
+		for (int i = 0; i < 6; i++) {
+			assertThat(limiterA.tryAcquire(CLIENT).allowed()).isTrue();
+		}
+		assertThat(limiterB.tryAcquire(CLIENT).allowed()).isTrue();
+
+		a.sync();
+		b.sync();
+		long window = now.get() / PERIOD_MS;
+		assertThat(store.get(POLICY, CLIENT.toString(), window)).isEqualTo(7);
+
+		// B ya sabe de los 6 de A: solo le quedan 3
+		assertThat(acquireAll(limiterB, CLIENT)).isEqualTo(3);
+
+		// Hasta sincronizar, A decide con lo que sabía: el límite se pasa por lo que entra en el intervalo
+		b.sync();
+		assertThat(limiterA.tryAcquire(CLIENT).allowed()).isTrue();
+		a.sync();
+		assertThat(limiterA.tryAcquire(CLIENT).allowed()).isFalse();
+		assertThat(store.get(POLICY, CLIENT.toString(), window)).isEqualTo(RATE + 1);
+	}
+
+	@Test
+	void thePreviousWindowKeepsBeingRefreshedAfterItEnds() {
+		SharedRateLimitBackend a = backend(store);
+		SharedRateLimitBackend b = backend(store);
+		RateLimiter limiterA = a.limiter(POLICY, RATE, PERIOD);
+		RateLimiter limiterB = b.limiter(POLICY, RATE, PERIOD);
+
+		assertThat(limiterB.tryAcquire(CLIENT).allowed()).isTrue();
+		b.sync();
+		// Al final de la ventana el cliente sigue por A; B todavía cree que la ventana tiene 1
+		for (int i = 0; i < 8; i++) {
+			assertThat(limiterA.tryAcquire(CLIENT).allowed()).isTrue();
+		}
+		a.sync();
+
+		// Principio de la ventana siguiente: la anterior pesa entera (9) y B tiene que enterarse
+		now.addAndGet(PERIOD_MS);
+		assertThat(limiterB.tryAcquire(CLIENT).allowed()).isTrue();
+		b.sync();
+		assertThat(limiterB.tryAcquire(CLIENT).allowed()).isFalse();
+	}
+
+	@Test
+	void aFailedSyncKeepsLimitingLocallyAndRetriesTheIncrements() {
+		AtomicBoolean down = new AtomicBoolean(true);
+		SharedCounters flaky = new SharedCounters() {
+			@Override
+			public long[] addAndGet(List<Delta> deltas) {
+				if (down.get()) {
+					throw new IllegalStateException("BD caída");
+				}
+				return store.addAndGet(deltas);
+			}
+
+			@Override
+			public void deleteBefore(String policy, long window) {
+				store.deleteBefore(policy, window);
+			}
+		};
+		SharedRateLimitBackend backend = backend(flaky);
+		RateLimiter limiter = backend.limiter(POLICY, RATE, PERIOD);
+
+		for (int i = 0; i < 4; i++) {
+			limiter.tryAcquire(CLIENT);
+		}
+		backend.sync();
+		assertThat(backend.stats()).containsEntry("syncErrors", 1L);
+		// Los 4 siguen contando aunque no llegaron a la BD
+		assertThat(acquireAll(limiter, CLIENT)).isEqualTo(RATE - 4);
+
+		down.set(false);
+		backend.sync();
+		long window = now.get() / PERIOD_MS;
+		assertThat(store.get(POLICY, CLIENT.toString(), window)).isEqualTo(RATE);
+		assertThat(limiter.tryAcquire(CLIENT).allowed()).isFalse();
+	}
+
+	@Test
+	void sweepDropsOldWindowsLocallyAndInTheStore() {
+		SharedRateLimitBackend backend = backend(store);
+		RateLimiter limiter = backend.limiter(POLICY, RATE, PERIOD);
+		long firstWindow = now.get() / PERIOD_MS;
+		limiter.tryAcquire(CLIENT);
+		backend.sync();
+		assertThat(store.get(POLICY, CLIENT.toString(), firstWindow)).isEqualTo(1);
+
+		now.addAndGet(3 * PERIOD_MS);
+		assertThat(limiter.sweep()).isPositive();
+		assertThat(store.get(POLICY, CLIENT.toString(), firstWindow)).isZero();
+	}
+
+	@Test
+	void clientsPastTheCapShareOverflowBuckets() {
+		SharedRateLimitBackend backend = new SharedRateLimitBackend(store, 2, now::get);
+		RateLimiter limiter = backend.limiter(POLICY, RATE, PERIOD);
+
+		for (int i = 0; i < 50; i++) {
+			limiter.tryAcquire(ClientKey.ofAddress("198.51.100." + i));
+		}
+		assertThat((long) backend.stats().get("overflowed")).isPositive();
+		// Tope de 2 clientes (4 contadores) más, como mucho, los baldes compartidos
+		assertThat((int) backend.stats().get("counters"))
+				.isLessThanOrEqualTo(4 + 2 * SharedRateLimitBackend.OVERFLOW_BUCKETS);
+	}
+}
@@ -0,0 +1,123 @@
+package com.crochet.puntoylana.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * IP real del cliente detrás de proxies: solo los de confianza pueden informarla.
+ */
+class TrustedProxiesTests {
+
+	private final TrustedProxies proxies = new TrustedProxies(List.of("10.0.0.0/8", "fc00::/7", "203.0.113.10"));
+
+	private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr(remoteAddr);
+		if (forwardedFor != null) {
+			request.addHeader("X-Forwarded-For", forwardedFor);
+		}
+		return request;
+	}
+
+	private static ClientKey ip(String address) {
+		return ClientKey.ofAddress(address);
+	}
+
+	@Test
+	void ignoresForwardedHeadersFromUntrustedPeers() {
+		MockHttpServletRequest request = request("198.51.100.7", "1.2.3.4");
+		request.addHeader("X-Real-IP", "5.6.7.8");
+
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("198.51.100.7"));
+	}
+
+	@Test
+	void takesTheRightmostUntrustedHop() {
+		// El cliente agrega un valor falso a la izquierda; el proxy agrega la IP real a la derecha
+		MockHttpServletRequest request = request("10.0.0.1", "6.6.6.6, 198.51.100.7");
+
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("198.51.100.7"));
+	}
+
+	@Test
+	void skipsEveryTrustedHopOfAChain() {
+		MockHttpServletRequest request = request("10.0.0.3", "6.6.6.6, 198.51.100.7, 203.0.113.10, 10.0.0.2");
+
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("198.51.100.7"));
+	}
+
+	@Test
+	void allTrustedHopsGiveTheLeftmostOne() {
+		MockHttpServletRequest request = request("10.0.0.3", "10.1.1.1, 10.0.0.2");
+
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("10.1.1.1"));
+	}
+
+	@Test
+	void stopsAtGarbageInTheChain() {
+		MockHttpServletRequest request = request("10.0.0.3", "198.51.100.7, not-an-ip, 10.0.0.2");
+
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("10.0.0.2"));
+	}
+
+	@Test
+	void usesXRealIpOnlyWithoutForwardedFor() {
+		MockHttpServletRequest request = request("10.0.0.1", null);
+		request.addHeader("X-Real-IP", "198.51.100.7");
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("198.51.100.7"));
+
+		MockHttpServletRequest invalid = request("10.0.0.1", null);
+		invalid.addHeader("X-Real-IP", "nope");
+		assertThat(proxies.clientAddress(invalid)).isEqualTo(ip("10.0.0.1"));
+	}
+
+	@Test
+	void unparseablePeerIsUnknown() {
+		assertThat(proxies.clientAddress(request("not-an-ip", "1.2.3.4"))).isEqualTo(ClientKey.UNKNOWN);
+	}
+
+	@Test
+	void matchesIpv6Cidrs() {
+		assertThat(proxies.isTrusted(ip("fd12:3456::1"))).isTrue();
+		assertThat(proxies.isTrusted(ip("fc00::"))).isTrue();
+		assertThat(proxies.isTrusted(ip("fe80::1"))).isFalse();
+		assertThat(proxies.isTrusted(ip("2001:db8::1"))).isFalse();
+
+		MockHttpServletRequest request = request("fd00::10", "2001:db8::77, fd00::20");
+		assertThat(proxies.clientAddress(request)).isEqualTo(ip("2001:db8::77"));
+	}
+
+	@Test
+	void matchesPrefixesLongerThan64Bits() {
+		TrustedProxies narrow = new TrustedProxies(List.of("2001:db8:0:0:1::/80", "2001:db8::5/128"));
+
+		assertThat(narrow.isTrusted(ip("2001:db8::1:0:0:1"))).isTrue();
+		assertThat(narrow.isTrusted(ip("2001:db8::2:0:0:1"))).isFalse();
+		assertThat(narrow.isTrusted(ip("2001:db8::5"))).isTrue();
+		assertThat(narrow.isTrusted(ip("2001:db8::6"))).isFalse();
+	}
+
+	@Test
+	void ipv4RangesMatchMappedAddressesOnly() {
+		assertThat(proxies.isTrusted(ip("::ffff:10.9.8.7"))).isTrue();
+		assertThat(proxies.isTrusted(ip("11.0.0.1"))).isFalse();
+		assertThat(proxies.isTrusted(ip("203.0.113.11"))).isFalse();
+		// 10.0.0.0/8 no incluye la IPv6 con los mismos bits bajos
+		assertThat(proxies.isTrusted(ip("::a00:1"))).isFalse();
+	}
+
+	@Test
+	void rejectsInvalidRanges() {
+		assertThatThrownBy(() -> new TrustedProxies(List.of("10.0.0.0/33")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TrustedProxies(List.of("fc00::/129")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TrustedProxies(List.of("proxy.local")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
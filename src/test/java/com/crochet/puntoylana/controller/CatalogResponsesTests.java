@@ -0,0 +1,61 @@
+package com.crochet.puntoylana.controller;
+
+import com.crochet.puntoylana.service.CatalogSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ETags y revalidación de {@link CatalogResponses}.
+ */
+class CatalogResponsesTests {
+
+	private final CatalogResponses responses = new CatalogResponses(
+			Duration.ofSeconds(60), Duration.ofMinutes(5), Duration.ofDays(1));
+
+	private static final CatalogSnapshot.Body BODY = new CatalogSnapshot.Body(
+			"[{\"id\":1}]".getBytes(StandardCharsets.UTF_8), null, "\"abc\"");
+
+	@Test
+	void weakEtagsHashTheRequestKeyLikeTheBodies() {
+		String etag = CatalogResponses.weakEtag("tag", "browse?type=digital");
+
+		assertThat(etag).isEqualTo("W/\"tag-"
+				+ CatalogSnapshot.contentTag("browse?type=digital".getBytes(StandardCharsets.UTF_8)) + "\"");
+		assertThat(CatalogResponses.weakEtag("tag", "browse?type=digital")).isEqualTo(etag);
+		// "Aa" y "BB" tienen el mismo String.hashCode()
+		assertThat(CatalogResponses.weakEtag("tag", "Aa")).isNotEqualTo(CatalogResponses.weakEtag("tag", "BB"));
+	}
+
+	@Test
+	void notModifiedKeepsVaryAndNeverSendsLastModified() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/public/products");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"abc\"");
+
+		ResponseEntity<byte[]> response = responses.ok(BODY, request);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(response.getHeaders().getETag()).isEqualTo("\"abc\"");
+		assertThat(response.getHeaders().containsHeader(HttpHeaders.LAST_MODIFIED)).isFalse();
+	}
+
+	@Test
+	void okResponsesCarryVaryAndNoLastModified() {
+		ResponseEntity<byte[]> full = responses.ok(BODY, new MockHttpServletRequest());
+		ResponseEntity<String> generated = responses.ok("x", CatalogResponses.weakEtag("tag", "q"));
+
+		assertThat(full.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(full.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(generated.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(full.getHeaders().containsHeader(HttpHeaders.LAST_MODIFIED)).isFalse();
+		assertThat(generated.getHeaders().containsHeader(HttpHeaders.LAST_MODIFIED)).isFalse();
+	}
+}
@@ -0,0 +1,91 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.CatalogBrowseResult;
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.entity.Product;
+import com.crochet.puntoylana.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Validación de los parámetros de {@link CatalogFacets#browse}: valores
+ * desconocidos y páginas fuera de rango.
+ */
+@SpringBootTest
+class CatalogFacetsTests {
+
+	@Autowired
+	private CatalogFacets catalogFacets;
+
+	@Autowired
+	private CatalogSnapshot catalogSnapshot;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private Product product;
+
+	@BeforeEach
+	void setUp() {
+		product = productRepository.save(Product.builder()
+				.name("Ovillo de prueba")
+				.price(new BigDecimal("10000"))
+				.stock(5)
+				.category(Category.YARN)
+				.build());
+		catalogSnapshot.refresh();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		productRepository.delete(product);
+		catalogSnapshot.refresh();
+	}
+
+	private static CatalogFacets.Query query(Set<String> prices, String type, String sort, int page, int size) {
+		return new CatalogFacets.Query(Set.of(), prices, null, null, false, type, sort, page, size);
+	}
+
+	@Test
+	void acceptsTheKnownValues() {
+		CatalogBrowseResult result = catalogFacets.browse(query(Set.of("0-20000"), "PHYSICAL", "price_desc", 0, 24));
+
+		assertThat(result.items()).extracting("id").contains(product.getId());
+		assertThat(catalogFacets.browse(query(Set.of(), null, "price", 0, 24)).items()).isNotEmpty();
+		assertThat(catalogFacets.browse(query(Set.of(), "", "newest", 0, 24)).items()).isNotEmpty();
+	}
+
+	@Test
+	void rejectsUnknownValuesWithTheirOwnMessage() {
+		assertThatThrownBy(() -> catalogFacets.browse(query(Set.of(), "plush", "newest", 0, 24)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("type");
+		assertThatThrownBy(() -> catalogFacets.browse(query(Set.of("1-2"), null, "newest", 0, 24)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Rango de precio no válido: 1-2");
+		assertThatThrownBy(() -> catalogFacets.browse(query(Set.of(), null, "priceless", 0, 24)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("sort");
+		assertThatThrownBy(() -> catalogFacets.browse(query(Set.of(), null, "newest", -1, 24)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("page");
+	}
+
+	@Test
+	void aPageFarPastTheEndIsEmptyInsteadOfWrappingAround() {
+		// page * size en int daba negativo y devolvía la primera página
+		CatalogBrowseResult result = catalogFacets.browse(query(Set.of(), null, "newest", Integer.MAX_VALUE, 100));
+
+		assertThat(result.items()).isEmpty();
+		assertThat(result.total()).isPositive();
+	}
+}
@@ -0,0 +1,134 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.OrderItemDto;
+import com.crochet.puntoylana.dto.OrderRequest;
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.entity.Order;
+import com.crochet.puntoylana.entity.Product;
+import com.crochet.puntoylana.entity.Role;
+import com.crochet.puntoylana.entity.User;
+import com.crochet.puntoylana.repository.OrderRepository;
+import com.crochet.puntoylana.repository.ProductRepository;
+import com.crochet.puntoylana.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sentencias que prepara Hibernate al crear un pedido, con y sin batching de
+ * JDBC (estadísticas de Hibernate). La reserva de stock y el outbox van por
+ * JdbcTemplate y no entran en la cuenta; la reserva ya es un solo batch.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderServiceTests {
+
+	private static final int LINES = 20;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private User user;
+	private final List<Long> products = new ArrayList<>();
+	private final List<Long> orders = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		user = userRepository.save(User.builder()
+				.firstName("Ana")
+				.lastName("Prueba")
+				.email("pedido-" + UUID.randomUUID() + "@example.com")
+				.password("x")
+				.role(Role.ROLE_USER)
+				.build());
+		// Los ids salen de a 50 por secuencia: se piden antes de medir
+		statementsFor(1);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		orderRepository.deleteAllById(orders);
+		productRepository.deleteAllById(products);
+		jdbcTemplate.update("DELETE FROM email_outbox WHERE recipient = ?", user.getEmail());
+		userRepository.delete(user);
+	}
+
+	@Nested
+	@TestPropertySource(properties = {
+			"spring.jpa.properties.hibernate.jdbc.batch_size=50",
+			"spring.jpa.properties.hibernate.order_inserts=true" })
+	class Batched {
+
+		@Test
+		void aMultiLineOrderPreparesAsManyStatementsAsASingleLineOne() {
+			long single = statementsFor(1);
+			long multi = statementsFor(LINES);
+
+			// Todos los items van en un mismo INSERT por batch (más, como mucho, una vuelta de la secuencia)
+			assertThat(multi).isLessThanOrEqualTo(single + 1);
+		}
+	}
+
+	@Nested
+	@TestPropertySource(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=1")
+	class Unbatched {
+
+		@Test
+		void eachExtraLineCostsAnInsert() {
+			long single = statementsFor(1);
+			long multi = statementsFor(LINES);
+
+			assertThat(multi).isGreaterThanOrEqualTo(single + LINES - 1);
+		}
+	}
+
+	private long statementsFor(int lines) {
+		List<OrderItemDto> items = new ArrayList<>();
+		for (int i = 0; i < lines; i++) {
+			Product product = productRepository.save(Product.builder()
+					.name("Ovillo " + i)
+					.price(new BigDecimal("10000"))
+					.stock(10)
+					.category(Category.YARN)
+					.build());
+			products.add(product.getId());
+			items.add(new OrderItemDto(product.getId(), 1));
+		}
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		Order order = orderService.createOrder(user,
+				new OrderRequest(items, "Calle 1 # 2-3", "3000000000", null, "card"));
+		orders.add(order.getId());
+		return statistics.getPrepareStatementCount();
+	}
+}
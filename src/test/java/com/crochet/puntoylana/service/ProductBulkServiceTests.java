@@ -0,0 +1,60 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.ImportReport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lectura de archivos de importación: BOM y números de línea de los errores.
+ * Todas las filas son inválidas, así que nada llega a la BD.
+ */
+@SpringBootTest
+class ProductBulkServiceTests {
+
+	@Autowired
+	private ProductBulkService productBulkService;
+
+	private ImportReport importText(String text, String format) throws Exception {
+		return productBulkService.importProducts(
+				new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), format);
+	}
+
+	@Test
+	void csvHeaderWithByteOrderMarkIsRecognized() throws Exception {
+		ImportReport report = importText("\uFEFFsku,name,price,category\nSKU-1,Ovillo,caro,YARN\n", "csv");
+
+		assertThat(report.errors()).singleElement().satisfies(error -> {
+			assertThat(error.sku()).isEqualTo("SKU-1");
+			assertThat(error.message()).contains("price");
+		});
+	}
+
+	@Test
+	void csvErrorsPointToTheLineWhereTheRecordStarts() throws Exception {
+		ImportReport report = importText("""
+				sku,name,description,price,category
+				SKU-1,Ovillo,"Suave
+				y liviano
+				",caro,YARN
+				SKU-2,Ovillo,,barato,YARN
+				""", "csv");
+
+		assertThat(report.errors()).extracting(ImportReport.RowError::line).containsExactly(2L, 5L);
+	}
+
+	@Test
+	void jsonLinesWithByteOrderMarkParse() throws Exception {
+		ImportReport report = importText("\uFEFF{\"sku\":\"SKU-1\",\"name\":\"Ovillo\"}\n", "jsonl");
+
+		assertThat(report.errors()).singleElement().satisfies(error -> {
+			assertThat(error.sku()).isEqualTo("SKU-1");
+			assertThat(error.message()).doesNotContain("JSON inválido");
+		});
+	}
+}
@@ -0,0 +1,70 @@
+package com.crochet.puntoylana.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ReadThroughCache}: tope de tamaño con CLOCK y limpieza de vencidas.
+ */
+class ReadThroughCacheTests {
+
+	@Test
+	void neverHoldsMoreThanMaxSize() {
+		ReadThroughCache<Integer, String> cache = new ReadThroughCache<>("test", 100, Duration.ofMinutes(5));
+
+		for (int i = 0; i < 10_000; i++) {
+			cache.get(i, k -> Optional.of("v" + k));
+		}
+
+		assertThat(cache.stats().size()).isLessThanOrEqualTo(100);
+		assertThat(cache.stats().evictions()).isGreaterThanOrEqualTo(10_000 - 100);
+	}
+
+	@Test
+	void keepsKeysThatKeepBeingRead() {
+		ReadThroughCache<Integer, String> cache = new ReadThroughCache<>("test", 100, Duration.ofMinutes(5));
+		AtomicInteger hotLoads = new AtomicInteger();
+
+		for (int i = 0; i < 10_000; i++) {
+			cache.get(-1, k -> {
+				hotLoads.incrementAndGet();
+				return Optional.of("hot");
+			});
+			cache.get(i, k -> Optional.of("v" + k));
+		}
+
+		assertThat(hotLoads.get()).isEqualTo(1);
+	}
+
+	@Test
+	void purgeExpiredDropsOnlyExpiredEntries() throws InterruptedException {
+		ReadThroughCache<Integer, String> cache = new ReadThroughCache<>("test", 100, Duration.ofMillis(20));
+		for (int i = 0; i < 50; i++) {
+			cache.get(i, k -> Optional.of("v" + k));
+		}
+		Thread.sleep(40);
+		cache.get(1_000, k -> Optional.of("fresh"));
+
+		assertThat(cache.purgeExpired()).isEqualTo(50);
+		assertThat(cache.stats().size()).isEqualTo(1);
+	}
+
+	@Test
+	void reusesTheSlotsOfInvalidatedKeys() {
+		ReadThroughCache<Integer, String> cache = new ReadThroughCache<>("test", 10, Duration.ofMinutes(5));
+		for (int i = 0; i < 10; i++) {
+			cache.get(i, k -> Optional.of("v" + k));
+		}
+		cache.invalidate(3);
+		cache.get(42, k -> Optional.of("new"));
+
+		// El lugar de la invalidada alcanza: no se desaloja a nadie
+		assertThat(cache.stats().evictions()).isZero();
+		assertThat(cache.stats().size()).isEqualTo(10);
+	}
+}
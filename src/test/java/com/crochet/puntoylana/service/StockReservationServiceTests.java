@@ -0,0 +1,155 @@
+package com.crochet.puntoylana.service;
+
+import com.crochet.puntoylana.dto.OrderItemDto;
+import com.crochet.puntoylana.entity.Category;
+import com.crochet.puntoylana.entity.Product;
+import com.crochet.puntoylana.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Estrés de la reserva de stock contra la BD real: muchos pedidos a la vez
+ * nunca venden más unidades de las que hay.
+ */
+@SpringBootTest
+class StockReservationServiceTests {
+
+	private static final int THREADS = 32;
+
+	@Autowired
+	private StockReservationService stockReservationService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		productRepository.deleteAllById(created);
+	}
+
+	@Test
+	void concurrentOrdersNeverOversell() throws Exception {
+		Product product = product("Ovillo de prueba", 25);
+
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		runConcurrently(400, i -> {
+			try {
+				transactionTemplate.executeWithoutResult(status -> stockReservationService
+						.reserve(List.of(new OrderItemDto(product.getId(), 1))));
+				sold.incrementAndGet();
+			} catch (InsufficientStockException e) {
+				rejected.incrementAndGet();
+			}
+		});
+
+		assertThat(sold.get()).isEqualTo(25);
+		assertThat(rejected.get()).isEqualTo(375);
+		assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isZero();
+	}
+
+	@Test
+	void opposingLineOrderDoesNotDeadlock() throws Exception {
+		Product a = product("Ovillo A", 100);
+		Product b = product("Ovillo B", 100);
+
+		AtomicInteger sold = new AtomicInteger();
+		runConcurrently(300, i -> {
+			// La mitad pide A luego B y la otra mitad al revés
+			List<OrderItemDto> items = i % 2 == 0
+					? List.of(new OrderItemDto(a.getId(), 1), new OrderItemDto(b.getId(), 1))
+					: List.of(new OrderItemDto(b.getId(), 1), new OrderItemDto(a.getId(), 1));
+			try {
+				transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(items));
+				sold.incrementAndGet();
+			} catch (InsufficientStockException e) {
+				// Sin stock: esperado cuando se agota
+			}
+		});
+
+		assertThat(sold.get()).isEqualTo(100);
+		assertThat(productRepository.findById(a.getId()).orElseThrow().getStock()).isZero();
+		assertThat(productRepository.findById(b.getId()).orElseThrow().getStock()).isZero();
+	}
+
+	@Test
+	void shortageIsReportedPerLineAndNothingIsReserved() {
+		Product plenty = product("Ovillo con stock", 10);
+		Product scarce = product("Ovillo escaso", 1);
+
+		InsufficientStockException error = null;
+		try {
+			transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(List.of(
+					new OrderItemDto(plenty.getId(), 3),
+					new OrderItemDto(scarce.getId(), 1),
+					new OrderItemDto(scarce.getId(), 1))));
+		} catch (InsufficientStockException e) {
+			error = e;
+		}
+
+		assertThat(error).isNotNull();
+		assertThat(error.getShortages()).singleElement().satisfies(shortage -> {
+			assertThat(shortage.productId()).isEqualTo(scarce.getId());
+			assertThat(shortage.requested()).isEqualTo(2);
+			assertThat(shortage.available()).isEqualTo(1);
+		});
+		assertThat(productRepository.findById(plenty.getId()).orElseThrow().getStock()).isEqualTo(10);
+	}
+
+	private Product product(String name, int stock) {
+		Product product = productRepository.save(Product.builder()
+				.name(name)
+				.price(new BigDecimal("10000"))
+				.stock(stock)
+				.category(Category.YARN)
+				.build());
+		created.add(product.getId());
+		return product;
+	}
+
+	private interface Attempt {
+		void run(int index);
+	}
+
+	// Todos los hilos arrancan juntos para maximizar la contención
+	private static void runConcurrently(int attempts, Attempt attempt) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < attempts; i++) {
+				int index = i;
+				futures.add(pool.submit(() -> {
+					start.await();
+					attempt.run(index);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(); // Propaga cualquier error inesperado (ej: deadlock)
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}